@@ -0,0 +1,304 @@
+package com.drtdrc.flexibleportals.gametest;
+
+import com.drtdrc.flexibleportals.FlexiblePortals;
+import com.drtdrc.flexibleportals.FlexiblePortalsConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.gametest.v1.GameTest;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.EndPortalFrameBlock;
+import net.minecraft.item.BucketItem;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.ItemUsageContext;
+import net.minecraft.item.Items;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.test.TestContext;
+import net.minecraft.text.Text;
+import net.minecraft.util.Hand;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.math.random.Random;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Headless load test for the portal mixin paths, run by {@code ./gradlew runGameTest}.
+ * <p>
+ * Builds randomized frames inside the empty {@code stress_arena} structure (valid, nearly closed, blocked interior
+ * and one max-area frame per family), then lights them through real game entry points: fire placement (vanilla
+ * fire → NetherPortalMixin), ender eyes via {@code EnderEyeItem.useOnBlock} (EnderEyeItemMixin) and water buckets
+ * via {@code BucketItem.placeFluid} (BucketItemMixin). Wall time of every server tick during the operation phase
+ * is recorded and logged.
+ * <p>
+ * Tick times depend on the machine, so they are only gated under {@code ./gradlew runStressGate}: there the test
+ * fails when a percentile regresses against {@code flexibleportals/stress-baseline.json} in the test resources, or
+ * when no baseline has been recorded. {@code ./gradlew runStressGate -PrecordStressBaseline} rewrites that file on
+ * the reference machine instead of comparing; the file notes which machine that was.
+ */
+public class PortalStressGameTest {
+
+    private enum Kind { VALID, NEARLY_CLOSED, BLOCKED, MAX_AREA }
+
+    private static final int FRAMES = 16;                  // half nether, half end
+    private static final long SEED = 20250927L;
+    private static final int ARENA_X = 224, ARENA_Y = 72, ARENA_Z = 72; // size of stress_arena.nbt
+    private static final int OPS_PER_TICK = 8;
+    private static final int MAX_SIDE = 16;                // max interior side of a random frame
+    private static final double TOLERANCE = 0.25;          // allowed relative regression per percentile
+    private static final double SLACK_MS = 1.0;            // absolute slack so tiny baselines don't flap
+    private static final int FLAGS = Block.NOTIFY_LISTENERS | Block.FORCE_STATE;
+    private static final String BASELINE = "flexibleportals/stress-baseline.json";
+    private static final String RECORD_PROPERTY = "flexibleportals.stressBaseline.record";
+    private static final String GATE_PROPERTY = "flexibleportals.stressGate";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /** Outer frame box in structure-relative coordinates: nether frames stand in XY, end frames lie in XZ. */
+    private record Frame(boolean nether, Kind kind, BlockPos min, int w, int h) {
+        BlockPos cell(int u, int v) { return nether ? min.add(u, v, 0) : min.add(u, 0, v); }
+        boolean onRing(int u, int v) { return u == 0 || v == 0 || u == w - 1 || v == h - 1; }
+        BlockPos ignition() { return cell(1, 1); }
+    }
+
+    /** Percentiles are null until a baseline has been recorded; {@code machine} describes where it was. */
+    private record Baseline(int frames, long seed, String machine, Double p50, Double p95, Double p99, Double max) {}
+
+    private static final class Run {
+        final ArrayDeque<Runnable> ops = new ArrayDeque<>();
+        final List<Long> samples = new ArrayList<>();
+        long tickStart;          // non-zero while an operating tick is in progress
+        List<String> regressions; // set once, after the last operating tick
+    }
+
+    private static Run run; // the server runs one stress test at a time
+    private static boolean registered;
+
+    @GameTest(structure = "flexibleportals-test:stress_arena", maxTicks = 2400)
+    public void portalStress(TestContext context) {
+        registerTickHooks();
+
+        ServerWorld world = context.getWorld();
+        Random random = Random.create(SEED);
+        // Square max-area frame, capped by the arena for very large configured caps
+        int maxSide = Math.min((int) Math.sqrt(FlexiblePortalsConfig.maxArea()), Math.min(ARENA_Y, ARENA_Z - 2) - 2) + 2;
+        List<Frame> frames = layout(maxSide, random);
+        for (Frame f : frames) {
+            context.assertTrue(fits(f), Text.literal("Frame " + f + " does not fit the stress arena"));
+            build(context, world, f, random);
+        }
+
+        Run r = new Run();
+        queueOps(r, context, world, frames, random);
+        run = r;
+
+        // Retried every tick until it passes or the test times out
+        context.addFinalTask(() -> {
+            context.assertTrue(r.ops.isEmpty() && r.tickStart == 0, Text.literal(r.ops.size() + " stress operations still queued"));
+            if (r.regressions == null) {
+                run = null;
+                r.regressions = report(r);
+            }
+            context.assertTrue(r.regressions.isEmpty(), Text.literal("Stress regression: " + String.join(", ", r.regressions)));
+        });
+    }
+
+    private static void registerTickHooks() {
+        if (registered) return;
+        registered = true;
+        ServerTickEvents.START_SERVER_TICK.register(server -> {
+            Run r = run;
+            if (r == null || r.ops.isEmpty()) return;
+            r.tickStart = System.nanoTime();
+            for (int i = 0; i < OPS_PER_TICK && !r.ops.isEmpty(); i++) r.ops.poll().run();
+        });
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            Run r = run;
+            if (r == null || r.tickStart == 0) return;
+            r.samples.add(System.nanoTime() - r.tickStart);
+            r.tickStart = 0;
+        });
+    }
+
+    // ----------------------------------------------------
+    // Layout: nether frames in a row at z = 0, end frames in a row behind them
+    // ----------------------------------------------------
+    private static List<Frame> layout(int maxSide, Random random) {
+        List<Frame> frames = new ArrayList<>(FRAMES);
+        int netherX = 0, endX = 0;
+        boolean netherMax = false, endMax = false;
+
+        for (int i = 0; i < FRAMES; i++) {
+            boolean nether = (i & 1) == 0;
+            Kind kind;
+            int w, h;
+            if (nether ? !netherMax : !endMax) {
+                kind = Kind.MAX_AREA;
+                w = h = maxSide;
+                if (nether) netherMax = true; else endMax = true;
+            } else {
+                kind = switch (random.nextInt(4)) {
+                    case 0 -> Kind.NEARLY_CLOSED;
+                    case 1 -> Kind.BLOCKED;
+                    default -> Kind.VALID;
+                };
+                // Blocked frames need a second interior cell besides the ignition cell
+                int min = kind == Kind.BLOCKED ? 4 : 3;
+                w = min + random.nextInt(MAX_SIDE + 3 - min);
+                h = min + random.nextInt(MAX_SIDE + 3 - min);
+            }
+
+            if (nether) {
+                frames.add(new Frame(true, kind, new BlockPos(netherX, 0, 0), w, h));
+                netherX += w + 2;
+            } else {
+                frames.add(new Frame(false, kind, new BlockPos(endX, 0, 2), w, h));
+                endX += w + 2;
+            }
+        }
+        return frames;
+    }
+
+    private static boolean fits(Frame f) {
+        BlockPos max = f.cell(f.w() - 1, f.h() - 1);
+        return max.getX() < ARENA_X && max.getY() < ARENA_Y && max.getZ() < ARENA_Z;
+    }
+
+    private static void build(TestContext context, ServerWorld world, Frame f, Random random) {
+        BlockState endFrame = Blocks.END_PORTAL_FRAME.getDefaultState().with(EndPortalFrameBlock.EYE, false);
+        for (int u = 0; u < f.w(); u++) {
+            for (int v = 0; v < f.h(); v++) {
+                if (!f.onRing(u, v)) continue; // the arena is cleared to air before the test
+                BlockState s;
+                if (f.nether()) s = random.nextBoolean() ? Blocks.OBSIDIAN.getDefaultState() : Blocks.CRYING_OBSIDIAN.getDefaultState();
+                else s = endFrame;
+                world.setBlockState(context.getAbsolutePos(f.cell(u, v)), s, FLAGS);
+            }
+        }
+        switch (f.kind()) {
+            // One missing edge block leaves a 4-connected gap, so the outside flood leaks in
+            case NEARLY_CLOSED -> world.setBlockState(context.getAbsolutePos(f.cell(1 + random.nextInt(f.w() - 2), 0)), Blocks.AIR.getDefaultState(), FLAGS);
+            // Keep the ignition cell free so the fire still lands
+            case BLOCKED -> world.setBlockState(context.getAbsolutePos(f.cell(f.w() - 2, f.h() - 2)), Blocks.STONE.getDefaultState(), FLAGS);
+            default -> {}
+        }
+    }
+
+    private static void queueOps(Run r, TestContext context, ServerWorld world, List<Frame> frames, Random random) {
+        for (Frame f : frames) {
+            if (f.nether()) {
+                BlockPos p = context.getAbsolutePos(f.ignition());
+                r.ops.add(() -> world.setBlockState(p, Blocks.FIRE.getDefaultState(), Block.NOTIFY_ALL));
+            } else {
+                List<BlockPos> ring = new ArrayList<>();
+                for (int u = 0; u < f.w(); u++)
+                    for (int v = 0; v < f.h(); v++)
+                        if (f.onRing(u, v)) ring.add(context.getAbsolutePos(f.cell(u, v)));
+                // Players fill frames in no particular order
+                Collections.shuffle(ring, new java.util.Random(random.nextLong()));
+                for (BlockPos p : ring) r.ops.add(() -> insertEye(world, p));
+            }
+        }
+        for (Frame f : frames) {
+            BlockPos p = context.getAbsolutePos(f.ignition());
+            r.ops.add(() -> bucket(world, p));
+        }
+    }
+
+    // ----------------------------------------------------
+    // Operations, each through the real item/block entry point
+    // ----------------------------------------------------
+    private static void insertEye(ServerWorld world, BlockPos pos) {
+        ItemStack stack = new ItemStack(Items.ENDER_EYE);
+        BlockHitResult hit = new BlockHitResult(Vec3d.ofCenter(pos), Direction.UP, pos, false);
+        Items.ENDER_EYE.useOnBlock(new ItemUsageContext(world, null, Hand.MAIN_HAND, stack, hit) {});
+    }
+
+    private static void bucket(ServerWorld world, BlockPos p) {
+        BlockState s = world.getBlockState(p);
+        if (!s.isOf(Blocks.NETHER_PORTAL) && !s.isOf(Blocks.END_PORTAL)) return;
+        ((BucketItem) Items.WATER_BUCKET).placeFluid(null, world, p, null);
+        // Drop the source again before it gets to flow
+        world.setBlockState(p, Blocks.AIR.getDefaultState(), FLAGS);
+    }
+
+    // ----------------------------------------------------
+    // Results and baseline
+    // ----------------------------------------------------
+    private static double percentileMs(long[] sorted, double q) {
+        int i = Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(q * sorted.length) - 1));
+        return sorted[i] / 1e6;
+    }
+
+    /** Compares against (or records) the baseline; returns the regressions found. */
+    private static List<String> report(Run r) {
+        long[] sorted = r.samples.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        Baseline now = new Baseline(FRAMES, SEED, machine(),
+                percentileMs(sorted, 0.50), percentileMs(sorted, 0.95), percentileMs(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        FlexiblePortals.LOGGER.info("Portal stress: {} ticks, p50 {} ms, p95 {} ms, p99 {} ms, max {} ms",
+                sorted.length, now.p50(), now.p95(), now.p99(), now.max());
+
+        if (System.getProperty(GATE_PROPERTY) == null) return List.of(); // plain runGameTest: no wall-clock gate
+
+        String record = System.getProperty(RECORD_PROPERTY);
+        if (record != null) {
+            Path file = Path.of(record);
+            try (Writer w = Files.newBufferedWriter(file)) {
+                GSON.toJson(now, w);
+            } catch (IOException e) {
+                return List.of("could not write baseline " + file + ": " + e.getMessage());
+            }
+            FlexiblePortals.LOGGER.info("Portal stress baseline written to {}", file);
+            return List.of();
+        }
+
+        Baseline base;
+        Optional<Path> file = FabricLoader.getInstance().getModContainer("flexibleportals-test").flatMap(mod -> mod.findPath(BASELINE));
+        if (file.isEmpty()) return List.of("missing " + BASELINE);
+        try (Reader reader = Files.newBufferedReader(file.get())) {
+            base = GSON.fromJson(reader, Baseline.class);
+        } catch (IOException | RuntimeException e) {
+            return List.of("unreadable " + BASELINE + ": " + e.getMessage());
+        }
+        if (base.frames() != now.frames() || base.seed() != now.seed()) {
+            return List.of(String.format("baseline was recorded with %d frames, seed %d; re-record it", base.frames(), base.seed()));
+        }
+        if (base.p50() == null || base.p95() == null || base.p99() == null) {
+            return List.of("no baseline recorded in " + BASELINE + "; run ./gradlew runStressGate -PrecordStressBaseline on the reference machine");
+        }
+        if (!now.machine().equals(base.machine())) {
+            FlexiblePortals.LOGGER.warn("Stress baseline was recorded on '{}', this is '{}'; timings may not compare", base.machine(), now.machine());
+        }
+
+        List<String> regressions = new ArrayList<>();
+        check(regressions, "p50", base.p50(), now.p50());
+        check(regressions, "p95", base.p95(), now.p95());
+        check(regressions, "p99", base.p99(), now.p99());
+        return regressions;
+    }
+
+    private static String machine() {
+        Runtime rt = Runtime.getRuntime();
+        return String.format("%s %s, %d cpus, %d MB heap, Java %s", System.getProperty("os.name"), System.getProperty("os.arch"),
+                rt.availableProcessors(), rt.maxMemory() >> 20, System.getProperty("java.version"));
+    }
+
+    private static void check(List<String> out, String name, double base, double now) {
+        if (now > base * (1 + TOLERANCE) + SLACK_MS) out.add(String.format("%s %.2f ms > baseline %.2f ms", name, now, base));
+    }
+}
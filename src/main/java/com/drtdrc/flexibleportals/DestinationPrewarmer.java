@@ -0,0 +1,41 @@
+package com.drtdrc.flexibleportals;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.dimension.DimensionType;
+
+/**
+ * Warms up the other side of a freshly lit nether portal so the first entity through doesn't pay for it.
+ * <p>
+ * On creation we drop a portal ticket on the predicted (scaled) destination, which makes the chunk system
+ * load/generate that area off-thread; the ticket expires on its own like vanilla's. The exit lookup and the exit
+ * portal itself stay vanilla's work at teleport time: the query position depends on where the entity stands, so
+ * an answer computed ahead of time would rarely match it.
+ */
+public final class DestinationPrewarmer {
+
+    private DestinationPrewarmer() {}
+
+    private static final int TICKET_RADIUS = 3; // same radius vanilla uses for portal tickets
+
+    /** Schedule async loading of the area a portal {@code region} in {@code world} will lead to. */
+    public static void schedule(ServerWorld world, PortalsUtil.FreeformRegion region) {
+        MinecraftServer server = world.getServer();
+        if (!server.isNetherAllowed()) return;
+
+        RegistryKey<World> destKey = world.getRegistryKey() == World.NETHER ? World.OVERWORLD : World.NETHER;
+        ServerWorld dest = server.getWorld(destKey);
+        if (dest == null) return;
+
+        // Same mapping vanilla applies to the entity position when it teleports
+        double scale = DimensionType.getCoordinateScaleFactor(world.getDimension(), dest.getDimension());
+        BlockPos target = dest.getWorldBorder().clampFloored(region.centerX() * scale, region.centerY(), region.centerZ() * scale);
+
+        dest.getChunkManager().addTicket(ChunkTicketType.PORTAL, new ChunkPos(target), TICKET_RADIUS);
+    }
+}
@@ -0,0 +1,225 @@
+package com.drtdrc.flexibleportals;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.EndPortalFrameBlock;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the eyed end-frame components of each world in a union-find so eye insertion only runs full portal
+ * detection when the new eye actually closes a loop.
+ * <p>
+ * Frames are 8-connected on their horizontal plane, the same connectivity detection uses; the loop rule itself
+ * is {@link FrameRing#closesLoop}. Removing a cell can split its component, which union-find can't express, so
+ * the whole component is dropped and rebuilt by flood the next time a new eye lands next to it. Frames from
+ * world generation or chunks loaded before any change are picked up the same lazy way. A component whose loop
+ * closed but couldn't light (blocked interior) stays flagged, and the next eye added to it detects again.
+ * <p>
+ * Every frame change reaches {@link #onStateChanged} via {@code ServerWorldMixin}; the eye item asks
+ * {@link #shouldDetect} afterwards and reports failures through {@link #detectFailed}. Server thread only.
+ */
+public final class EndFrameTracker {
+
+    private EndFrameTracker() {}
+
+    private static final long NONE = FrameRing.NONE;
+
+    /** Union-find over packed block positions; every root also owns the list of its members. */
+    private static final class Components {
+        final Long2LongOpenHashMap parent = new Long2LongOpenHashMap();
+        final Long2ObjectOpenHashMap<LongArrayList> members = new Long2ObjectOpenHashMap<>();
+        final LongOpenHashSet blocked = new LongOpenHashSet(); // roots of components that closed but didn't light
+
+        Components() {
+            parent.defaultReturnValue(NONE);
+        }
+
+        boolean tracked(long p) {
+            return parent.containsKey(p);
+        }
+
+        void add(long p) {
+            parent.put(p, p);
+            LongArrayList list = new LongArrayList();
+            list.add(p);
+            members.put(p, list);
+        }
+
+        long find(long p) {
+            long root = p;
+            while (true) {
+                long up = parent.get(root);
+                if (up == root) break;
+                root = up;
+            }
+            // Path compression
+            while (p != root) {
+                long up = parent.get(p);
+                parent.put(p, root);
+                p = up;
+            }
+            return root;
+        }
+
+        void union(long a, long b) {
+            long ra = find(a), rb = find(b);
+            if (ra == rb) return;
+            LongArrayList la = members.get(ra), lb = members.get(rb);
+            // Smaller member list joins the larger one
+            if (la.size() < lb.size()) {
+                long t = ra; ra = rb; rb = t;
+                LongArrayList tl = la; la = lb; lb = tl;
+            }
+            parent.put(rb, ra);
+            la.addAll(lb);
+            members.remove(rb);
+            if (blocked.remove(rb)) blocked.add(ra);
+        }
+
+        /** Forget every cell of {@code p}'s component. */
+        void drop(long p) {
+            long root = find(p);
+            LongArrayList list = members.remove(root);
+            for (int i = 0; i < list.size(); i++) parent.remove(list.getLong(i));
+            blocked.remove(root);
+        }
+    }
+
+    private static final Map<RegistryKey<World>, Components> worlds = new HashMap<>();
+    private static RegistryKey<World> closedWorld;
+    private static long closedAt = NONE;
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> clear());
+        // The frame criteria may have changed
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, manager, success) -> clear());
+    }
+
+    private static void clear() {
+        worlds.clear();
+        closedWorld = null;
+        closedAt = NONE;
+    }
+
+    /** Called after every block change in a server world. */
+    public static void onStateChanged(ServerWorld world, BlockPos pos, BlockState oldState, BlockState newState) {
+        StateTable frame = PortalsUtil.PortalSpec.end().frame();
+        boolean was = frame.test(oldState), is = frame.test(newState);
+        if (was == is) return;
+
+        if (was) {
+            Components c = worlds.get(world.getRegistryKey());
+            if (c != null && c.tracked(pos.asLong())) c.drop(pos.asLong());
+            return;
+        }
+
+        if (insert(world, worlds.computeIfAbsent(world.getRegistryKey(), k -> new Components()), pos, frame)) {
+            closedWorld = world.getRegistryKey();
+            closedAt = pos.asLong();
+        }
+    }
+
+    /**
+     * True once if the eye just inserted at {@code pos} closed a loop (or retried a blocked one); the eye item
+     * then runs full detection. Always true when the end frame criteria ignore {@code eye}: the insertion is no
+     * frame change then, so the tracker never sees it.
+     */
+    public static boolean shouldDetect(ServerWorld world, BlockPos pos) {
+        boolean closed = closedAt == pos.asLong() && closedWorld == world.getRegistryKey();
+        closedWorld = null;
+        closedAt = NONE;
+        return closed || !eyeSensitive(PortalsUtil.PortalSpec.end().frame());
+    }
+
+    /** Detection after {@link #shouldDetect} found no portal: keep the component flagged for the next eye. */
+    public static void detectFailed(ServerWorld world, BlockPos pos) {
+        Components c = worlds.get(world.getRegistryKey());
+        if (c != null && c.tracked(pos.asLong())) c.blocked.add(c.find(pos.asLong()));
+    }
+
+    /** Whether {@code frame} tells eyed from empty end portal frames. */
+    private static boolean eyeSensitive(StateTable frame) {
+        for (BlockState state : Blocks.END_PORTAL_FRAME.getStateManager().getStates()) {
+            if (frame.test(state) != frame.test(state.cycle(EndPortalFrameBlock.EYE))) return true;
+        }
+        return false;
+    }
+
+    /** Track the new frame cell at {@code pos}; returns whether it may have closed a loop or joins a blocked one. */
+    private static boolean insert(ServerWorld world, Components c, BlockPos pos, StateTable frame) {
+        long p = pos.asLong();
+        if (c.tracked(p)) return false;
+
+        BlockPos.Mutable m = new BlockPos.Mutable();
+        long[] ring = new long[8];
+        for (int i = 0; i < 8; i++) {
+            m.set(pos.getX() + FrameRing.DX[i], pos.getY(), pos.getZ() + FrameRing.DZ[i]);
+            ring[i] = frame.test(world.getBlockState(m)) ? m.asLong() : NONE;
+        }
+
+        // Bring neighbours that were never tracked (or were dropped) up to date, excluding the new cell itself
+        for (long n : ring) {
+            if (n != NONE && !c.tracked(n) && !collect(world, c, n, p, frame)) return true; // too big to track, just detect
+        }
+
+        long[] roots = new long[8];
+        boolean retry = false;
+        for (int i = 0; i < 8; i++) {
+            roots[i] = ring[i] == NONE ? NONE : c.find(ring[i]);
+            if (roots[i] != NONE && c.blocked.contains(roots[i])) retry = true;
+        }
+        boolean closes = FrameRing.closesLoop(roots);
+
+        c.add(p);
+        for (long n : ring) if (n != NONE) c.union(p, n);
+        // Detection runs now; detectFailed sets the flag again if the loop still doesn't light
+        if (closes || retry) c.blocked.remove(c.find(p));
+        return closes || retry;
+    }
+
+    /** Flood the untracked frame component at {@code start} into {@code c}, stopping at {@code skip}; false if it hit the cap. */
+    private static boolean collect(ServerWorld world, Components c, long start, long skip, StateTable frame) {
+        int max = FlexiblePortalsConfig.maxComponent();
+        LongArrayList added = new LongArrayList();
+        LongArrayFIFOQueue q = new LongArrayFIFOQueue();
+        BlockPos.Mutable m = new BlockPos.Mutable();
+
+        c.add(start);
+        added.add(start);
+        q.enqueue(start);
+        while (!q.isEmpty()) {
+            long k = q.dequeueLong();
+            int x = BlockPos.unpackLongX(k), y = BlockPos.unpackLongY(k), z = BlockPos.unpackLongZ(k);
+            for (int i = 0; i < 8; i++) {
+                long n = BlockPos.asLong(x + FrameRing.DX[i], y, z + FrameRing.DZ[i]);
+                if (n == skip) continue;
+                if (c.tracked(n)) {
+                    c.union(start, n); // a component we already know; its cells are complete
+                    continue;
+                }
+                if (!frame.test(world.getBlockState(m.set(n)))) continue;
+                if (added.size() >= max) {
+                    c.drop(start); // may include components joined above; they get rebuilt the same way
+                    return false;
+                }
+                c.add(n);
+                c.union(start, n);
+                added.add(n);
+                q.enqueue(n);
+            }
+        }
+        return true;
+    }
+}
@@ -1,10 +1,20 @@
 package com.drtdrc.flexibleportals;
 
+import com.drtdrc.flexibleportals.command.FlexiblePortalsCommand;
+import com.drtdrc.flexibleportals.trace.DetectionTrace;
 import net.fabricmc.api.ModInitializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class FlexiblePortals implements ModInitializer {
     public static final String MOD_ID = "flexibleportals";
+    public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
     @Override
     public void onInitialize() {
+        FlexiblePortalsConfig.load();
+        DetectionTrace.setEnabled(FlexiblePortalsConfig.traceDetection());
+        PortalSpecLoader.register();
+        EndFrameTracker.register();
+        FlexiblePortalsCommand.register();
     }
 }
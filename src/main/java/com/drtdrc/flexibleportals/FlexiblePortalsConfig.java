@@ -0,0 +1,65 @@
+package com.drtdrc.flexibleportals;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Server-side settings, read once at startup from {@code config/flexibleportals.json}.
+ * Missing keys fall back to defaults and the file is rewritten so new keys show up.
+ */
+public final class FlexiblePortalsConfig {
+
+    private FlexiblePortalsConfig() {}
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Path FILE = FabricLoader.getInstance().getConfigDir().resolve(FlexiblePortals.MOD_ID + ".json");
+
+    private static final class Values {
+        int maxArea = 4096;       // max interior cells of one portal
+        int maxComponent = 8192;  // max frame cells walked while collecting one frame
+        boolean traceDetection;   // record every detection to flexibleportals/traces (see DetectionTrace)
+    }
+
+    private static Values values = new Values();
+
+    public static void load() {
+        Values loaded = null;
+        if (Files.exists(FILE)) {
+            try (Reader reader = Files.newBufferedReader(FILE)) {
+                loaded = GSON.fromJson(reader, Values.class);
+            } catch (IOException | JsonParseException e) {
+                FlexiblePortals.LOGGER.error("Could not read {}, using defaults: {}", FILE, e.getMessage());
+                return;
+            }
+        }
+        values = loaded != null ? loaded : new Values();
+        values.maxArea = Math.max(1, values.maxArea);
+        values.maxComponent = Math.max(4, values.maxComponent);
+
+        try (Writer writer = Files.newBufferedWriter(FILE)) {
+            GSON.toJson(values, writer);
+        } catch (IOException e) {
+            FlexiblePortals.LOGGER.warn("Could not write {}: {}", FILE, e.getMessage());
+        }
+    }
+
+    public static int maxArea() {
+        return values.maxArea;
+    }
+
+    public static int maxComponent() {
+        return values.maxComponent;
+    }
+
+    public static boolean traceDetection() {
+        return values.traceDetection;
+    }
+}
@@ -0,0 +1,57 @@
+package com.drtdrc.flexibleportals;
+
+/**
+ * The loop rule behind {@link EndFrameTracker}, kept free of world access so it can be checked on its own.
+ * <p>
+ * A new frame cell closes a loop when at least two of the frame groups around it (its 3×3 ring, split into
+ * 8-connected runs) already belong to the same component; with a single group, or groups from different
+ * components, no new hole can appear.
+ */
+final class FrameRing {
+
+    private FrameRing() {}
+
+    /** Marks an empty ring slot. {@code BlockPos.asLong} never produces it for world coordinates. */
+    static final long NONE = Long.MIN_VALUE;
+
+    // 3×3 ring in order, starting north; even slots are orthogonal, odd slots diagonal
+    static final int[] DX = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    static final int[] DZ = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+    /**
+     * Whether a cell whose ring slots hold the given component roots ({@link #NONE} for no frame) closes a loop.
+     */
+    static boolean closesLoop(long[] roots) {
+        // Split the ring into 8-connected groups: neighbours in ring order touch, and so do two orthogonal
+        // neighbours around a corner even when the diagonal between them is empty
+        int[] group = { 0, 1, 2, 3, 4, 5, 6, 7 };
+        for (int i = 0; i < 8; i++) {
+            if (roots[i] == NONE) continue;
+            int next = (i + 1) & 7, nextOrtho = (i + 2) & 7;
+            if (roots[next] != NONE) join(group, i, next);
+            if ((i & 1) == 0 && roots[nextOrtho] != NONE) join(group, i, nextOrtho);
+        }
+
+        // Two separate groups already in one component: the new cell closes a loop through them
+        long[] rootOfGroup = { NONE, NONE, NONE, NONE, NONE, NONE, NONE, NONE };
+        for (int i = 0; i < 8; i++) {
+            if (roots[i] == NONE) continue;
+            int g = root(group, i);
+            if (rootOfGroup[g] != NONE) continue;
+            for (int j = 0; j < 8; j++) {
+                if (rootOfGroup[j] == roots[i]) return true;
+            }
+            rootOfGroup[g] = roots[i];
+        }
+        return false;
+    }
+
+    private static int root(int[] group, int i) {
+        while (group[i] != i) i = group[i];
+        return i;
+    }
+
+    private static void join(int[] group, int a, int b) {
+        group[root(group, a)] = root(group, b);
+    }
+}
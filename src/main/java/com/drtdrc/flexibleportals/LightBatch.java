@@ -0,0 +1,59 @@
+package com.drtdrc.flexibleportals;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Defers light checks for bulk portal writes. Both portal blocks emit light, and vanilla queues one light task
+ * per changed block; the server light thread runs only a handful of tasks ({@code taskBatchSize}) before each
+ * propagation pass, so a large portal is relit in hundreds of small passes that keep re-walking the same area.
+ * <p>
+ * While a batch is open on the server thread, {@code WorldChunkMixin} hands every light check of the batch's
+ * world to {@link #capture} instead of the light engine. Closing the batch queues a single task holding every
+ * position ({@code ServerLightingProviderMixin}); the engine queues them all before its next update, so the
+ * whole affected area is propagated in one pass. Nested batches fold into the outermost one.
+ */
+public final class LightBatch implements AutoCloseable {
+
+    /** Implemented on {@code ServerLightingProvider} by mixin. */
+    public interface Target {
+        /** Queue one light task that checks every packed position in {@code positions} ahead of one update pass. */
+        void flexibleportals$checkBlocks(long[] positions);
+    }
+
+    private static final LightBatch NESTED = new LightBatch(null);
+    private static LightBatch active; // server thread only
+
+    private final ServerWorld world;
+    private final Thread owner = Thread.currentThread();
+    private final LongArrayList positions = new LongArrayList();
+
+    private LightBatch(ServerWorld world) {
+        this.world = world;
+    }
+
+    /** Start collecting light checks for {@code world}; use with try-with-resources. */
+    public static LightBatch open(ServerWorld world) {
+        if (active != null) return NESTED;
+        return active = new LightBatch(world);
+    }
+
+    /** Called for every light check from {@code WorldChunk.setBlockState}; true if the batch took it. */
+    public static boolean capture(World world, BlockPos pos) {
+        LightBatch batch = active;
+        if (batch == null || batch.world != world || batch.owner != Thread.currentThread()) return false;
+        batch.positions.add(pos.asLong());
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (this == NESTED) return;
+        active = null;
+        if (positions.isEmpty()) return;
+
+        ((Target) world.getChunkManager().getLightingProvider()).flexibleportals$checkBlocks(positions.toLongArray());
+    }
+}
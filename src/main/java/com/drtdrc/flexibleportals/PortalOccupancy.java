@@ -0,0 +1,45 @@
+package com.drtdrc.flexibleportals;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Per-section summary of portal blocks (nether and end portal together), implemented on {@link ChunkSection}
+ * by {@code ChunkSectionMixin} and kept current on every block change. Lets portal walks skip sections without
+ * portal and test a cell with one bit instead of a block state lookup.
+ * <p>
+ * Bits use the palette index order, {@code y << 8 | z << 4 | x}; the array only exists while the section
+ * holds at least one portal.
+ */
+public interface PortalOccupancy {
+
+    int flexibleportals$portalCount();
+
+    /** 4096 bits, or null when the section has no portal. Live data, don't modify. */
+    long[] flexibleportals$portalBits();
+
+    static boolean isPortal(BlockState state) {
+        return state.isOf(Blocks.NETHER_PORTAL) || state.isOf(Blocks.END_PORTAL);
+    }
+
+    static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    static PortalOccupancy of(ChunkSection section) {
+        return (PortalOccupancy) section;
+    }
+
+    /** Whether the block at {@code x, y, z} is a portal, read from the section summary. */
+    static boolean isPortalAt(World world, int x, int y, int z) {
+        if (world.isOutOfHeightLimit(y)) return false;
+        WorldChunk chunk = world.getChunk(x >> 4, z >> 4);
+        long[] bits = of(chunk.getSection(chunk.getSectionIndex(y))).flexibleportals$portalBits();
+        if (bits == null) return false;
+        int i = index(x, y, z);
+        return (bits[i >>> 6] & 1L << i) != 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.drtdrc.flexibleportals;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.resource.Resource;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.state.property.Properties;
+import net.minecraft.state.property.Property;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Loads the frame/interior criteria of each portal family from {@code data/flexibleportals/portal_spec/*.json}
+ * and compiles them into {@link StateTable}s. Tables are rebuilt when the server starts (before worlds load) and
+ * after every datapack reload. Both points come after tags have been bound, so {@code #tag} criteria always see
+ * the current tag contents; a plain reload listener would run before the new tags are applied.
+ * <p>
+ * Each criterion is either a block id ({@code "minecraft:obsidian"}), a block tag ({@code "#minecraft:fire"})
+ * or an object {@code {"block": "...", "properties": {"eye": "true"}}}.
+ */
+public final class PortalSpecLoader {
+
+    private PortalSpecLoader() {}
+
+    private static final Identifier END_ID = Identifier.of(FlexiblePortals.MOD_ID, "portal_spec/end.json");
+    private static final Identifier NETHER_ID = Identifier.of(FlexiblePortals.MOD_ID, "portal_spec/nether.json");
+
+    private static volatile PortalsUtil.PortalSpec end;
+    private static volatile PortalsUtil.PortalSpec nether;
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> reload(server.getResourceManager()));
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> {
+            if (success) reload(server.getResourceManager());
+        });
+    }
+
+    public static PortalsUtil.PortalSpec end() {
+        PortalsUtil.PortalSpec spec = end;
+        if (spec == null) end = spec = PortalsUtil.PortalSpec.end(StateTable.compile(defaultEndFrame()), StateTable.compile(defaultEndInterior()));
+        return spec;
+    }
+
+    public static PortalsUtil.PortalSpec nether() {
+        PortalsUtil.PortalSpec spec = nether;
+        if (spec == null) nether = spec = PortalsUtil.PortalSpec.nether(StateTable.compile(defaultNetherFrame()), StateTable.compile(defaultNetherInterior()));
+        return spec;
+    }
+
+    private static void reload(ResourceManager manager) {
+        end = PortalsUtil.PortalSpec.end(
+                compile(manager, END_ID, "frame", defaultEndFrame()),
+                compile(manager, END_ID, "interior", defaultEndInterior()));
+        nether = PortalsUtil.PortalSpec.nether(
+                compile(manager, NETHER_ID, "frame", defaultNetherFrame()),
+                compile(manager, NETHER_ID, "interior", defaultNetherInterior()));
+    }
+
+    // ----------------------------------------------------
+    // Built-in criteria, used when a spec file is missing or broken
+    // ----------------------------------------------------
+    private static Predicate<BlockState> defaultEndFrame() {
+        return s -> s.isOf(Blocks.END_PORTAL_FRAME) && s.getOrEmpty(Properties.EYE).orElse(false);
+    }
+
+    private static Predicate<BlockState> defaultEndInterior() {
+        return s -> s.isAir() || s.isOf(Blocks.END_PORTAL);
+    }
+
+    private static Predicate<BlockState> defaultNetherFrame() {
+        return s -> s.isOf(Blocks.OBSIDIAN) || s.isOf(Blocks.CRYING_OBSIDIAN);
+    }
+
+    private static Predicate<BlockState> defaultNetherInterior() {
+        return s -> s.isAir() || s.isOf(Blocks.NETHER_PORTAL) || s.isIn(BlockTags.FIRE);
+    }
+
+    // ----------------------------------------------------
+    // JSON criteria
+    // ----------------------------------------------------
+    private static StateTable compile(ResourceManager manager, Identifier file, String key, Predicate<BlockState> fallback) {
+        Optional<Resource> resource = manager.getResource(file);
+        if (resource.isEmpty()) return StateTable.compile(fallback);
+
+        try (Reader reader = resource.get().getReader()) {
+            JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+            JsonArray entries = root.getAsJsonArray(key);
+            if (entries == null) throw new JsonParseException("missing \"" + key + "\" array");
+
+            List<Predicate<BlockState>> criteria = new ArrayList<>();
+            for (JsonElement entry : entries) criteria.add(parseCriterion(entry));
+            return StateTable.compile(s -> {
+                for (Predicate<BlockState> c : criteria) if (c.test(s)) return true;
+                return false;
+            });
+        } catch (IOException | RuntimeException e) {
+            FlexiblePortals.LOGGER.error("Invalid portal spec {} ({}), using built-in criteria: {}", file, key, e.getMessage());
+            return StateTable.compile(fallback);
+        }
+    }
+
+    private static Predicate<BlockState> parseCriterion(JsonElement entry) {
+        if (entry.isJsonPrimitive()) {
+            String s = entry.getAsString();
+            if (s.startsWith("#")) {
+                TagKey<Block> tag = TagKey.of(RegistryKeys.BLOCK, parseId(s.substring(1)));
+                return state -> state.isIn(tag);
+            }
+            Block block = parseBlock(s);
+            return state -> state.isOf(block);
+        }
+
+        JsonObject obj = entry.getAsJsonObject();
+        Block block = parseBlock(obj.get("block").getAsString());
+        Predicate<BlockState> criterion = state -> state.isOf(block);
+
+        JsonObject properties = obj.getAsJsonObject("properties");
+        if (properties != null) {
+            for (Map.Entry<String, JsonElement> p : properties.entrySet()) {
+                Property<?> property = block.getStateManager().getProperty(p.getKey());
+                if (property == null) throw new JsonParseException("unknown property " + p.getKey() + " on " + Registries.BLOCK.getId(block));
+                String value = p.getValue().getAsString();
+                criterion = criterion.and(state -> valueName(state, property).equals(value));
+            }
+        }
+        return criterion;
+    }
+
+    private static <T extends Comparable<T>> String valueName(BlockState state, Property<T> property) {
+        return property.name(state.get(property));
+    }
+
+    private static Identifier parseId(String s) {
+        Identifier id = Identifier.tryParse(s);
+        if (id == null) throw new JsonParseException("invalid identifier " + s);
+        return id;
+    }
+
+    private static Block parseBlock(String s) {
+        Identifier id = parseId(s);
+        if (!Registries.BLOCK.containsId(id)) throw new JsonParseException("unknown block " + s);
+        return Registries.BLOCK.get(id);
+    }
+}
@@ -1,20 +1,25 @@
 package com.drtdrc.flexibleportals;
 
+import com.drtdrc.flexibleportals.trace.DetectionTrace;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.NetherPortalBlock;
-import net.minecraft.registry.tag.BlockTags;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvent;
-import net.minecraft.state.property.Properties;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.world.BlockView;
 
 import java.util.*;
 import java.util.function.Function;
-import java.util.function.Predicate;
 
 public final class PortalsUtil {
 
@@ -23,16 +28,16 @@ public final class PortalsUtil {
     // -----------------------
     // Tunables / safety caps
     // -----------------------
-    private static final int MAX_AREA = 4096;      // max interior cells (safety)
-    private static final int MAX_COMPONENT = 8192; // max frame component pixels (safety)
+    // Interior and component caps are configurable, see FlexiblePortalsConfig.
+    private static final long MIN_GRID_CELLS = 1L << 22; // padded bbox cells always allowed (512 KiB of bits)
 
     // -----------------------
     // Plane abstraction
     // -----------------------
     public enum Plane { HORIZONTAL, VERTICAL_X, VERTICAL_Z }
 
-    // Region result
-    public record FreeformRegion(Plane plane, List<BlockPos> interior) {
+    // Region result; cells[i] is the CELL_* class of interior.get(i) as read during detection
+    public record FreeformRegion(Plane plane, List<BlockPos> interior, byte[] cells) {
         public double centerX() { return interior.stream().mapToInt(BlockPos::getX).average().orElse(0) + 0.5; }
         public double centerY() { return interior.stream().mapToInt(BlockPos::getY).average().orElse(0) + 0.5; }
         public double centerZ() { return interior.stream().mapToInt(BlockPos::getZ).average().orElse(0) + 0.5; }
@@ -41,22 +46,30 @@ public final class PortalsUtil {
     /**
      * PortalSpec describes how to detect/construct a specific portal family (End vs Nether).
      * - allowedPlanes: which planes we’ll attempt from the origin (order matters; first success wins)
-     * - frame: block predicate for boundary (e.g., End: eyed frame; Nether: obsidian || crying_obsidian)
-     * - interior: predicate for interior cells we’re allowed to accept (STRICT: air or same portal only)
+     * - frame: compiled table for boundary blocks (e.g., End: eyed frame; Nether: obsidian || crying_obsidian)
+     * - interior: compiled table for interior cells we’re allowed to accept (STRICT: air or same portal only)
      * - portalBlock: the block to place (END_PORTAL or NETHER_PORTAL)
      * - orientedStateForPlane: how to orient the block on a given plane (End: identity; Nether: AXIS=X/Z)
+     * Frame/interior criteria are data-driven, see {@link PortalSpecLoader}.
      */
     public record PortalSpec(
             List<Plane> allowedPlanes,
-            Predicate<BlockState> frame,
-            Predicate<BlockState> interior,
+            StateTable frame,
+            StateTable interior,
             Block portalBlock,
             Function<Plane, BlockState> orientedStateForPlane
     ) {
-        /** End portal: horizontal only; frame = eyed frames; interior = air or end portal. */
+        /** End portal as currently loaded: horizontal only; frame = eyed frames; interior = air or end portal. */
         public static PortalSpec end() {
-            Predicate<BlockState> frame = s -> s.isOf(Blocks.END_PORTAL_FRAME) && s.getOrEmpty(Properties.EYE).orElse(false);
-            Predicate<BlockState> interior = s -> s.isAir() || s.isOf(Blocks.END_PORTAL);
+            return PortalSpecLoader.end();
+        }
+
+        /** Nether portal as currently loaded: vertical planes; frame = obsidian OR crying obsidian; interior = air OR existing portal (STRICT). */
+        public static PortalSpec nether() {
+            return PortalSpecLoader.nether();
+        }
+
+        static PortalSpec end(StateTable frame, StateTable interior) {
             return new PortalSpec(
                     List.of(Plane.HORIZONTAL),
                     frame,
@@ -66,10 +79,7 @@ public final class PortalsUtil {
             );
         }
 
-        /** Nether portal: vertical planes; frame = obsidian OR crying obsidian; interior = air OR existing portal (STRICT). */
-        public static PortalSpec nether() {
-            Predicate<BlockState> frame = s -> s.isOf(Blocks.OBSIDIAN) || s.isOf(Blocks.CRYING_OBSIDIAN);
-            Predicate<BlockState> interior = s -> s.isAir() || s.isOf(Blocks.NETHER_PORTAL) || s.isIn(BlockTags.FIRE);
+        static PortalSpec nether(StateTable frame, StateTable interior) {
             return new PortalSpec(
                     List.of(Plane.VERTICAL_X, Plane.VERTICAL_Z), // try YZ then XY by default
                     frame,
@@ -95,16 +105,13 @@ public final class PortalsUtil {
         var region = found.get();
         BlockState place = spec.orientedStateForPlane().apply(region.plane());
 
-        // Only place into air or existing portal tiles; correct orientation if needed.
-        for (BlockPos p : region.interior()) {
-            BlockState s = world.getBlockState(p);
-            // Do not replace frame blocks that happen to be inside the cavity.
-            if (spec.frame().test(s)) continue;
-
-            if (spec.interior().test(s)) {
-                if (!s.equals(place)) {
-                    world.setBlockState(p, place, Block.NOTIFY_LISTENERS | Block.FORCE_STATE);
-                }
+        // Classes come from the same tick's detection: write only open cells. Frame blocks inside the
+        // cavity and portal tiles that already have the right orientation are left alone.
+        List<BlockPos> interior = region.interior();
+        byte[] cells = region.cells();
+        try (LightBatch ignored = LightBatch.open(world)) {
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == CELL_OPEN) world.setBlockState(interior.get(i), place, Block.NOTIFY_LISTENERS | Block.FORCE_STATE);
             }
         }
 
@@ -114,40 +121,97 @@ public final class PortalsUtil {
                     BlockPos.ofFloored(region.centerX(), region.centerY(), region.centerZ()),
                     creationSound, SoundCategory.BLOCKS, vol, 1.0f);
         }
+
+        // Start loading the other side now rather than on the first teleport
+        if (spec.portalBlock() == Blocks.NETHER_PORTAL) DestinationPrewarmer.schedule(world, region);
         return true;
     }
 
-    /** Try each allowed plane: find an 8-connected frame component and compute interior. */
-    public static Optional<FreeformRegion> findBlocksToFill(ServerWorld world, BlockPos origin, PortalSpec spec) {
-        for (Plane plane : spec.allowedPlanes()) {
-            BlockPos first = findNearestFrameOnPlane(world, origin, plane, spec.frame() /*radius*/);
-            if (first == null) continue;
-
-            // Collect the 8-connected frame "pixels" in UV space on this plane
-            Set<Long> frameUV = collectFrameComponentUV(world, first, plane, spec.frame());
-            if (frameUV.isEmpty()) continue;
-
-            // Compute interior via edge-safe outside flood (diagonal-safe)
-            int constCoord = cOf(first, plane);
-            Bounds b = boundsOf(frameUV);
-            List<BlockPos> interior = interiorFromFrameUV(frameUV, plane, constCoord, b.minU, b.minV, b.maxU, b.maxV);
-
-            // STRICT VALIDATION: every interior block must already be air OR the same portal.
-            boolean allClear = true;
-            for (BlockPos p : interior) {
-                BlockState s = world.getBlockState(p);
-                if (!(spec.interior().test(s) || spec.frame().test(s))) {
-                    allClear = false;
-                    break;
-                }
+    /**
+     * Try each allowed plane: find an 8-connected frame component and compute interior.
+     * Only reads block states, so it also runs off-thread against a snapshot view.
+     */
+    public static Optional<FreeformRegion> findBlocksToFill(BlockView world, BlockPos origin, PortalSpec spec) {
+        DetectionTrace.Recorder trace = DetectionTrace.begin(origin, spec); // null unless tracing is on
+        try {
+            for (Plane plane : spec.allowedPlanes()) {
+                int C = cOf(origin, plane), u0 = uOf(origin, plane), v0 = vOf(origin, plane);
+                CellReader cells = classifier(world, spec, plane, C);
+                if (trace != null) cells = trace.plane(plane, C, u0, v0, cells);
+
+                InteriorCells found = detectPlane(cells, u0, v0, plane == Plane.HORIZONTAL,
+                        FlexiblePortalsConfig.maxComponent(), FlexiblePortalsConfig.maxArea());
+                if (trace != null) trace.result(found == null ? -1 : found.uv().length);
+                if (found == null) continue;
+
+                long[] uv = found.uv();
+                List<BlockPos> interior = new ArrayList<>(uv.length);
+                for (long k : uv) interior.add(fromUVC((int)(k>>32), (int)k, C, plane));
+                return Optional.of(new FreeformRegion(plane, interior, found.cells()));
             }
-            if (!allClear) continue; // reject this plane/frame if anything blocks the interior
+            return Optional.empty();
+        } finally {
+            if (trace != null) trace.finish();
+        }
+    }
 
-            if (interior.isEmpty() || interior.size() > MAX_AREA) continue;
+    // ----------------------------------------------------
+    // Detection core on classified cells (no world access)
+    // ----------------------------------------------------
+    public static final byte CELL_BLOCKER = 0; // anything the interior may not contain
+    public static final byte CELL_FRAME = 1;   // spec.frame()
+    public static final byte CELL_OPEN = 2;    // spec.interior() but not yet the portal state to place: air, fire, misoriented portal
+    public static final byte CELL_PORTAL = 3;  // already exactly the portal state this plane would place
+
+    /** One plane of the world, already classified; (u, v) are plane coordinates. */
+    @FunctionalInterface
+    public interface CellReader {
+        byte read(int u, int v);
+    }
 
-            return Optional.of(new FreeformRegion(plane, interior));
-        }
-        return Optional.empty();
+    /** Packed (u, v) interior cells of one plane and the class each one was read as. */
+    public record InteriorCells(long[] uv, byte[] cells) {}
+
+    /**
+     * Classifies each world cell of the plane once; repeated reads (ring scan, run edges, interior) hit the memo.
+     * The portal state depends on the plane, so classes are only meaningful per plane.
+     */
+    private static CellReader classifier(BlockView world, PortalSpec spec, Plane plane, int c) {
+        BlockPos.Mutable m = new BlockPos.Mutable();
+        StateTable frame = spec.frame(), interior = spec.interior();
+        BlockState place = spec.orientedStateForPlane().apply(plane);
+        Long2ByteOpenHashMap memo = new Long2ByteOpenHashMap();
+        memo.defaultReturnValue((byte) -1);
+        return (u, v) -> {
+            long k = pack(u, v);
+            byte cls = memo.get(k);
+            if (cls >= 0) return cls;
+            BlockState s = world.getBlockState(setUVC(m, u, v, c, plane));
+            cls = frame.test(s) ? CELL_FRAME : !interior.test(s) ? CELL_BLOCKER : s == place ? CELL_PORTAL : CELL_OPEN;
+            memo.put(k, cls);
+            return cls;
+        };
+    }
+
+    /**
+     * Steps 1–3 with STRICT validation folded into the interior walk. Returns the interior cells with their
+     * classes, or null if the plane has no acceptable portal. Public so the trace replay tool can drive it
+     * without a world.
+     */
+    public static InteriorCells detectPlane(CellReader cells, int u0, int v0, boolean rowsFirst, int maxComponent, int maxArea) {
+        long first = findNearestFrameOnPlane(cells, u0, v0, rowsFirst);
+        if (first == NONE) return null;
+
+        // Collect the 8-connected frame "pixels" in UV space on this plane
+        LongOpenHashSet frameUV = collectFrameComponentUV(cells, first, maxComponent);
+        if (frameUV.isEmpty()) return null;
+
+        // Compute interior via scanline span fill (diagonal-safe), classifying cells as they are emitted
+        Bounds b = boundsOf(frameUV);
+        InteriorCells interior = interiorFromFrameUV(cells, frameUV, b.minU, b.minV, b.maxU, b.maxV, maxComponent, maxArea);
+
+        if (interior == null || interior.uv().length == 0) return null;
+        return interior;
     }
 
     // ----------------------------------------------------
@@ -163,13 +227,22 @@ public final class PortalsUtil {
             case VERTICAL_Z -> new BlockPos(u, v, c);    // XY (Z=c)
         };
     }
+    private static BlockPos.Mutable setUVC(BlockPos.Mutable m,int u,int v,int c,Plane plane){
+        return switch(plane){
+            case HORIZONTAL -> m.set(u, c, v);
+            case VERTICAL_X -> m.set(c, v, u);
+            case VERTICAL_Z -> m.set(u, v, c);
+        };
+    }
     private static long pack(int u,int v){ return ((long)u<<32) ^ (v & 0xFFFFFFFFL); }
+    private static final long NONE = Long.MIN_VALUE; // no cell; pack() never produces it for real coordinates
 
     private record Bounds(int minU,int minV,int maxU,int maxV){}
-    private static Bounds boundsOf(Set<Long> uv){
+    private static Bounds boundsOf(LongOpenHashSet uv){
         int minU = Integer.MAX_VALUE, minV = Integer.MAX_VALUE;
         int maxU = Integer.MIN_VALUE, maxV = Integer.MIN_VALUE;
-        for (long k : uv){
+        for (LongIterator it = uv.iterator(); it.hasNext(); ){
+            long k = it.nextLong();
             int u = (int)(k>>32), v = (int)k;
             if (u < minU) minU = u; if (u > maxU) maxU = u;
             if (v < minV) minV = v; if (v > maxV) maxV = v;
@@ -180,85 +253,63 @@ public final class PortalsUtil {
     // ----------------------------------------------------
     // Step 1: find nearest frame pixel on plane (ring scan)
     // ----------------------------------------------------
-    private static BlockPos findNearestFrameOnPlane(ServerWorld w, BlockPos origin, Plane plane,
-                                                    Predicate<BlockState> isFrame){
-        if (isFrame.test(w.getBlockState(origin))) return origin;
-
-        for(int r = 1; r<= 24; r++){
-            switch(plane){
-                case HORIZONTAL -> {
-                    int y=origin.getY();
-                    for(int x=origin.getX()-r;x<=origin.getX()+r;x++){
-                        BlockPos p1=new BlockPos(x,y,origin.getZ()-r), p2=new BlockPos(x,y,origin.getZ()+r);
-                        if (isFrame.test(w.getBlockState(p1))) return p1;
-                        if (isFrame.test(w.getBlockState(p2))) return p2;
-                    }
-                    for(int z=origin.getZ()-r+1;z<=origin.getZ()+r-1;z++){
-                        BlockPos p1=new BlockPos(origin.getX()-r,y,z), p2=new BlockPos(origin.getX()+r,y,z);
-                        if (isFrame.test(w.getBlockState(p1))) return p1;
-                        if (isFrame.test(w.getBlockState(p2))) return p2;
-                    }
+    private static final int RING_RADIUS = 24;
+
+    /** rowsFirst keeps the historical sweep order: horizontal sweeps rows first, vertical planes sweep columns first. */
+    private static long findNearestFrameOnPlane(CellReader cells, int u0, int v0, boolean rowsFirst){
+        if (cells.read(u0, v0) == CELL_FRAME) return pack(u0, v0);
+
+        for(int r = 1; r<= RING_RADIUS; r++){
+            if (rowsFirst) {
+                for(int u=u0-r;u<=u0+r;u++){
+                    if (cells.read(u, v0-r) == CELL_FRAME) return pack(u, v0-r);
+                    if (cells.read(u, v0+r) == CELL_FRAME) return pack(u, v0+r);
                 }
-                case VERTICAL_X -> { // YZ plane
-                    int x=origin.getX();
-                    for(int y=origin.getY()-r;y<=origin.getY()+r;y++){
-                        BlockPos p1=new BlockPos(x,y,origin.getZ()-r), p2=new BlockPos(x,y,origin.getZ()+r);
-                        if (isFrame.test(w.getBlockState(p1))) return p1;
-                        if (isFrame.test(w.getBlockState(p2))) return p2;
-                    }
-                    for(int z=origin.getZ()-r+1;z<=origin.getZ()+r-1;z++){
-                        BlockPos p1=new BlockPos(x,origin.getY()-r,z), p2=new BlockPos(x,origin.getY()+r,z);
-                        if (isFrame.test(w.getBlockState(p1))) return p1;
-                        if (isFrame.test(w.getBlockState(p2))) return p2;
-                    }
+                for(int v=v0-r+1;v<=v0+r-1;v++){
+                    if (cells.read(u0-r, v) == CELL_FRAME) return pack(u0-r, v);
+                    if (cells.read(u0+r, v) == CELL_FRAME) return pack(u0+r, v);
                 }
-                case VERTICAL_Z -> { // XY plane
-                    int z=origin.getZ();
-                    for(int y=origin.getY()-r;y<=origin.getY()+r;y++){
-                        BlockPos p1=new BlockPos(origin.getX()-r,y,z), p2=new BlockPos(origin.getX()+r,y,z);
-                        if (isFrame.test(w.getBlockState(p1))) return p1;
-                        if (isFrame.test(w.getBlockState(p2))) return p2;
-                    }
-                    for(int x=origin.getX()-r+1;x<=origin.getX()+r-1;x++){
-                        BlockPos p1=new BlockPos(x,origin.getY()-r,z), p2=new BlockPos(x,origin.getY()+r,z);
-                        if (isFrame.test(w.getBlockState(p1))) return p1;
-                        if (isFrame.test(w.getBlockState(p2))) return p2;
-                    }
+            } else {
+                for(int v=v0-r;v<=v0+r;v++){
+                    if (cells.read(u0-r, v) == CELL_FRAME) return pack(u0-r, v);
+                    if (cells.read(u0+r, v) == CELL_FRAME) return pack(u0+r, v);
+                }
+                for(int u=u0-r+1;u<=u0+r-1;u++){
+                    if (cells.read(u, v0-r) == CELL_FRAME) return pack(u, v0-r);
+                    if (cells.read(u, v0+r) == CELL_FRAME) return pack(u, v0+r);
                 }
             }
         }
-        return null;
+        return NONE;
     }
 
     // ----------------------------------------------------
-    // Step 2: collect 8-connected frame component in UV space
+    // Step 2: collect 8-connected frame component in UV space (scanline)
     // ----------------------------------------------------
-    private static final int[][] DIR8 = {
-            { 1, 0}, { 1,-1}, {0,-1}, {-1,-1}, {-1, 0}, {-1, 1}, {0, 1}, { 1, 1}
-    };
-
-    private static Set<Long> collectFrameComponentUV(ServerWorld w, BlockPos seed, Plane plane,
-                                                     Predicate<BlockState> isFrame){
-        ArrayDeque<long[]> q = new ArrayDeque<>();
-        HashSet<Long> seen = new HashSet<>();
-        int C = cOf(seed, plane);
-        int su = uOf(seed, plane), sv = vOf(seed, plane);
-        long sk = pack(su, sv);
-        q.add(new long[]{su, sv});
-        seen.add(sk);
-
-        while(!q.isEmpty()){
-            long[] cur = q.removeFirst();
-            int u=(int)cur[0], v=(int)cur[1];
-
-            for (int[] d : DIR8){
-                int nu=u+d[0], nv=v+d[1];
-                long nk=pack(nu,nv);
-                if (seen.contains(nk)) continue;
-                BlockPos wp = fromUVC(nu, nv, C, plane);
-                if (isFrame.test(w.getBlockState(wp))){
-                    seen.add(nk); q.add(new long[]{nu,nv});
-                    if (seen.size()> PortalsUtil.MAX_COMPONENT) return Set.of(); // safety
+    private static LongOpenHashSet collectFrameComponentUV(CellReader cells, long seed, int max){
+        LongOpenHashSet seen = new LongOpenHashSet();
+        LongArrayFIFOQueue q = new LongArrayFIFOQueue();
+        q.enqueue(seed);
+
+        while (!q.isEmpty()) {
+            long k = q.dequeueLong();
+            if (!seen.add(k)) continue;
+            int u = (int)(k>>32), v = (int)k;
+
+            // Grow the run of frame cells left and right along row v
+            int l = u, r = u;
+            while (!seen.contains(pack(l - 1, v)) && cells.read(l - 1, v) == CELL_FRAME) seen.add(pack(--l, v));
+            while (!seen.contains(pack(r + 1, v)) && cells.read(r + 1, v) == CELL_FRAME) seen.add(pack(++r, v));
+            if (seen.size() > max) return new LongOpenHashSet(); // safety
+
+            // 8-connected: anything in rows v±1 from l-1 to r+1 touches this run; queue one seed per run found
+            for (int nv = v - 1; nv <= v + 1; nv += 2) {
+                boolean inRun = false;
+                for (int nu = l - 1; nu <= r + 1; nu++) {
+                    long nk = pack(nu, nv);
+                    boolean frame = !seen.contains(nk) && cells.read(nu, nv) == CELL_FRAME;
+                    if (frame && !inRun) q.enqueue(nk);
+                    inRun = frame;
                 }
             }
         }
@@ -266,99 +317,84 @@ public final class PortalsUtil {
     }
 
     // ----------------------------------------------------
-    // Step 3: outside flood (4-neighbor) to get interior
+    // Step 3: scanline span fill on a bit grid to get interior
     // ----------------------------------------------------
-    private static final int[][] DIR4 = { {1,0}, {-1,0}, {0,1}, {0,-1} };
-
-    /** Edge-safe outside flood: interior = bbox − (outside ∪ frame). Diagonal pinholes remain sealed. */
-    private static List<BlockPos> interiorFromFrameUV(
-            Set<Long> frameUV, Plane plane, int C,
-            int minU, int minV, int maxU, int maxV) {
-
-        // expand bbox with moat
-        int uMin = minU - 1, uMax = maxU + 1;
-        int vMin = minV - 1, vMax = maxV + 1;
-
-        HashSet<Long> outside = new HashSet<>();
-        ArrayDeque<long[]> q = new ArrayDeque<>();
 
-        // seed perimeter
-        for (int u = uMin; u <= uMax; u++) {
-            enqueueIfFree(u, vMin, frameUV, outside, q);
-            enqueueIfFree(u, vMax, frameUV, outside, q);
-        }
-        for (int v = vMin + 1; v <= vMax - 1; v++) {
-            enqueueIfFree(uMin, v, frameUV, outside, q);
-            enqueueIfFree(uMax, v, frameUV, outside, q);
-        }
-
-        // flood (4-neighbor, do not enter frame)
-        while (!q.isEmpty()) {
-            long[] cur = q.removeFirst();
-            int u = (int)cur[0], v = (int)cur[1];
-
-            for (int[] d : DIR4) {
-                int nu = u + d[0], nv = v + d[1];
-                if (nu < uMin || nu > uMax || nv < vMin || nv > vMax) continue;
-                long nk = pack(nu, nv);
-                if (outside.contains(nk)) continue;
-                if (frameUV.contains(nk)) continue;
-                outside.add(nk);
-                q.addLast(new long[]{nu, nv});
-            }
+    /**
+     * Interior = padded bbox − (outside ∪ frame), outside being 4-connected to the moat. Diagonal pinholes remain sealed.
+     * STRICT: every interior cell must be open or portal already; the walk stops at the first blocker and returns null.
+     */
+    private static InteriorCells interiorFromFrameUV(
+            CellReader cells,
+            LongOpenHashSet frameUV,
+            int minU, int minV, int maxU, int maxV,
+            int maxComponent, int maxArea) {
+
+        // bbox plus a one-cell moat on every side; bounded so degenerate frames can't blow up memory
+        int width = maxU - minU + 3, height = maxV - minV + 3;
+        long maxGrid = Math.max(MIN_GRID_CELLS, 8L * ((long) maxArea + maxComponent));
+        if ((long) width * height > maxGrid) return null;
+
+        long[][] frame = new long[height][(width + 63) >>> 6];
+        for (LongIterator it = frameUV.iterator(); it.hasNext(); ) {
+            long k = it.nextLong();
+            int x = (int)(k>>32) - minU + 1, y = (int)k - minV + 1;
+            frame[y][x >>> 6] |= 1L << x;
         }
 
-        // interior = bbox cells not in frame and not outside (restricted to original bbox)
-        ArrayList<BlockPos> interior = new ArrayList<>();
-        for (int u = minU; u <= maxU; u++) {
-            for (int v = minV; v <= maxV; v++) {
-                long k = pack(u, v);
-                if (frameUV.contains(k)) continue;
-                if (outside.contains(k)) continue;
-                interior.add(fromUVC(u, v, C, plane));
-                if (interior.size() > MAX_AREA) return List.of(); // safety
+        long[][] inside = SpanFill.interior(frame, width, maxArea);
+        if (inside == null) return null; // safety
+
+        LongArrayList interior = new LongArrayList();
+        ByteArrayList classes = new ByteArrayList();
+        for (int y = 1; y < height - 1; y++) {
+            long[] row = inside[y];
+            for (int i = 0; i < row.length; i++) {
+                for (long bits = row[i]; bits != 0; bits &= bits - 1) {
+                    int x = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    int u = x - 1 + minU, v = y - 1 + minV;
+                    byte cls = cells.read(u, v);
+                    if (cls == CELL_BLOCKER) return null; // reject this plane/frame if anything blocks the interior
+                    interior.add(pack(u, v));
+                    classes.add(cls);
+                }
             }
         }
-        return interior;
-    }
-
-    private static void enqueueIfFree(int u, int v, Set<Long> frameUV,
-                                      Set<Long> outside, ArrayDeque<long[]> q) {
-        long k = pack(u, v);
-        if (!frameUV.contains(k) && outside.add(k)) q.add(new long[]{u, v});
+        return new InteriorCells(interior.toLongArray(), classes.toByteArray());
     }
 
     // ----------------------------------------------------
     // Utilities kept from your original class
     // ----------------------------------------------------
     public static void breakConnectedEndPortal(ServerWorld w, BlockPos start) {
-        var q = new ArrayDeque<BlockPos>();
-        var seen = new HashSet<BlockPos>();
-        q.add(start);
-
-        while (!q.isEmpty()) {
-            BlockPos p = q.removeFirst();
-            if (!seen.add(p)) continue;
-            if (!w.getBlockState(p).isOf(Blocks.END_PORTAL)) continue;
-
-            w.breakBlock(p, false);
-            for (Direction d : Direction.values()) q.add(p.offset(d));
-        }
+        breakConnectedPortal(w, start, Blocks.END_PORTAL);
     }
 
     public static void breakConnectedNetherPortal(ServerWorld w, BlockPos start) {
-        var q = new ArrayDeque<BlockPos>();
-        var seen = new HashSet<BlockPos>();
-        q.add(start);
-
-        while (!q.isEmpty()) {
-            BlockPos p = q.removeFirst();
-            if (!seen.add(p)) continue;
-            BlockState state = w.getBlockState(p);
-            if (!state.isOf(Blocks.NETHER_PORTAL)) continue;
+        breakConnectedPortal(w, start, Blocks.NETHER_PORTAL);
+    }
 
-            w.breakBlock(p, false);
-            for (Direction d : Direction.values()) q.add(p.offset(d));
+    /** 6-way walk over {@code portal} blocks; neighbours are tested against the section portal bits, not the world. */
+    private static void breakConnectedPortal(ServerWorld w, BlockPos start, Block portal) {
+        LongArrayFIFOQueue q = new LongArrayFIFOQueue();
+        LongOpenHashSet seen = new LongOpenHashSet();
+        q.enqueue(start.asLong());
+        seen.add(start.asLong());
+
+        try (LightBatch ignored = LightBatch.open(w)) {
+            while (!q.isEmpty()) {
+                BlockPos p = BlockPos.fromLong(q.dequeueLong());
+                // The bits cover both portal kinds; only cells we actually break pay for a state lookup
+                if (!w.getBlockState(p).isOf(portal)) continue;
+
+                w.breakBlock(p, false);
+                for (Direction d : Direction.values()) {
+                    int x = p.getX() + d.getOffsetX(), y = p.getY() + d.getOffsetY(), z = p.getZ() + d.getOffsetZ();
+                    if (PortalOccupancy.isPortalAt(w, x, y, z) && seen.add(BlockPos.asLong(x, y, z))) {
+                        q.enqueue(BlockPos.asLong(x, y, z));
+                    }
+                }
+            }
         }
     }
 }
@@ -0,0 +1,169 @@
+package com.drtdrc.flexibleportals;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Scanline interior fill on a bit grid, the engine behind {@link PortalsUtil}'s interior step.
+ * <p>
+ * The grid is a padded bounding box (one free moat cell on every side) with one bit per frame cell.
+ * Free cells are cut into horizontal spans, spans in neighbouring rows that share a column are joined
+ * with union-find (4-connectivity, so diagonal pinholes between frame cells stay sealed), and every span
+ * not joined to the moat is interior. Rows are processed in bands on the fork-join pool for large grids;
+ * only the band seams and the root flattening run sequentially.
+ */
+final class SpanFill {
+
+    private SpanFill() {}
+
+    private static final long PARALLEL_THRESHOLD = 1L << 16; // grid cells below which we stay on the caller thread
+    private static final int MIN_BAND_ROWS = 64;
+
+    /**
+     * @param frame  frame bits per row, {@code frame[y][x >>> 6] & (1L << x)}; row 0, the last row and
+     *               columns 0 and {@code width - 1} must be free
+     * @param width  grid width in cells
+     * @param limit  maximum interior cells accepted
+     * @return interior bits per row in the same layout, or {@code null} if the interior exceeds {@code limit}
+     */
+    static long[][] interior(long[][] frame, int width, int limit) {
+        int height = frame.length;
+        int bands = (long) width * height < PARALLEL_THRESHOLD ? 1 : Math.max(1, height / MIN_BAND_ROWS);
+        int bandRows = (height + bands - 1) / bands;
+
+        // 1) Free spans per row, stored as [start0, end0, start1, end1, ...] (end inclusive)
+        int[][] spans = new int[height][];
+        forEachBand(bands, bandRows, height, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) spans[y] = freeSpans(frame[y], width);
+        });
+
+        int[] offset = new int[height + 1];
+        for (int y = 0; y < height; y++) offset[y + 1] = offset[y] + spans[y].length / 2;
+        int[] parent = new int[offset[height]];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+
+        // 2) Join overlapping spans inside each band; unions never leave the band, so bands don't race
+        forEachBand(bands, bandRows, height, (y0, y1) -> {
+            for (int y = y0 + 1; y < y1; y++) joinRows(spans, offset, parent, y);
+        });
+
+        // 3) Stitch the band seams, then flatten every span to its root
+        for (int y = bandRows; y < height; y += bandRows) joinRows(spans, offset, parent, y);
+        for (int i = 0; i < parent.length; i++) parent[i] = find(parent, i);
+
+        // Row 0 is all moat: its single span is the outside
+        int outside = parent[0];
+        long count = 0;
+        for (int y = 0; y < height && count <= limit; y++) {
+            int[] row = spans[y];
+            for (int s = 0; s < row.length; s += 2) {
+                if (parent[offset[y] + s / 2] != outside) count += row[s + 1] - row[s] + 1;
+            }
+        }
+        if (count > limit) return null;
+
+        // 4) Emit interior bits
+        long[][] interior = new long[height][frame[0].length];
+        forEachBand(bands, bandRows, height, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int[] row = spans[y];
+                for (int s = 0; s < row.length; s += 2) {
+                    if (parent[offset[y] + s / 2] != outside) setRange(interior[y], row[s], row[s + 1]);
+                }
+            }
+        });
+        return interior;
+    }
+
+    private interface BandTask { void run(int y0, int y1); }
+
+    private static void forEachBand(int bands, int bandRows, int height, BandTask task) {
+        if (bands == 1) {
+            task.run(0, height);
+            return;
+        }
+        IntStream.range(0, bands).parallel().forEach(b -> task.run(b * bandRows, Math.min(height, (b + 1) * bandRows)));
+    }
+
+    // ----------------------------------------------------
+    // Spans and union-find
+    // ----------------------------------------------------
+    private static int[] freeSpans(long[] row, int width) {
+        int n = 0;
+        int[] out = new int[8];
+        int x = 0;
+        while (x < width) {
+            int s = nextClear(row, x, width);
+            if (s >= width) break;
+            int e = nextSet(row, s, width);
+            if (n + 2 > out.length) out = Arrays.copyOf(out, out.length * 2);
+            out[n++] = s;
+            out[n++] = e - 1;
+            x = e;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** Union spans of row {@code y - 1} and row {@code y} that share at least one column. */
+    private static void joinRows(int[][] spans, int[] offset, int[] parent, int y) {
+        int[] a = spans[y - 1], b = spans[y];
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            if (Math.max(a[i], b[j]) <= Math.min(a[i + 1], b[j + 1])) {
+                union(parent, offset[y - 1] + i / 2, offset[y] + j / 2);
+            }
+            // Advance whichever span ends first
+            if (a[i + 1] < b[j + 1]) i += 2; else j += 2;
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra == rb) return;
+        // Lower id wins so the outside keeps root 0
+        if (ra < rb) parent[rb] = ra; else parent[ra] = rb;
+    }
+
+    // ----------------------------------------------------
+    // Bit helpers
+    // ----------------------------------------------------
+    private static int nextSet(long[] row, int from, int width) {
+        int w = from >>> 6;
+        if (w >= row.length) return width;
+        long bits = row[w] & (-1L << from);
+        while (true) {
+            if (bits != 0) return Math.min(width, (w << 6) + Long.numberOfTrailingZeros(bits));
+            if (++w >= row.length) return width;
+            bits = row[w];
+        }
+    }
+
+    private static int nextClear(long[] row, int from, int width) {
+        int w = from >>> 6;
+        if (w >= row.length) return width;
+        long bits = ~row[w] & (-1L << from);
+        while (true) {
+            if (bits != 0) return Math.min(width, (w << 6) + Long.numberOfTrailingZeros(bits));
+            if (++w >= row.length) return width;
+            bits = ~row[w];
+        }
+    }
+
+    private static void setRange(long[] row, int from, int to) {
+        for (int x = from; x <= to; ) {
+            int w = x >>> 6;
+            int end = Math.min(to, (w << 6) + 63);
+            long mask = (-1L << x) & (-1L >>> (63 - (end & 63)));
+            row[w] |= mask;
+            x = end + 1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.drtdrc.flexibleportals;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+
+import java.util.function.Predicate;
+
+/**
+ * Dense bitset over raw block state IDs. Criteria are evaluated once per state when the table
+ * is compiled; afterwards a test is one field read on the state plus one array read.
+ */
+public final class StateTable implements Predicate<BlockState> {
+
+    /** Raw state ID cached on every block state by {@code AbstractBlockStateMixin}. */
+    public interface Indexed {
+        int flexibleportals$rawId();
+
+        void flexibleportals$setRawId(int id);
+    }
+
+    private final long[] words;
+
+    private StateTable(long[] words) {
+        this.words = words;
+    }
+
+    /** Evaluate {@code criteria} against every registered block state and keep the matches. */
+    public static StateTable compile(Predicate<BlockState> criteria) {
+        long[] words = new long[(Block.STATE_IDS.size() + 63) >>> 6];
+        for (BlockState state : Block.STATE_IDS) {
+            int id = Block.getRawIdFromState(state);
+            // Registries are frozen by the time tables compile; seed the per-state cache while we are here
+            ((Indexed) state).flexibleportals$setRawId(id);
+            if (criteria.test(state)) words[id >>> 6] |= 1L << id;
+        }
+        return new StateTable(words);
+    }
+
+    @Override
+    public boolean test(BlockState state) {
+        int id = ((Indexed) state).flexibleportals$rawId();
+        int w = id >>> 6;
+        return w < words.length && (words[w] & (1L << id)) != 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.drtdrc.flexibleportals.command;
+
+import com.drtdrc.flexibleportals.FlexiblePortals;
+import com.drtdrc.flexibleportals.trace.DetectionTrace;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.minecraft.command.argument.DimensionArgumentType;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+
+/** {@code /flexibleportals ...} admin commands. */
+public final class FlexiblePortalsCommand {
+
+    private FlexiblePortalsCommand() {}
+
+    private static final int MAX_RADIUS = 4096;
+
+    public static void register() {
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> dispatcher.register(
+                CommandManager.literal(FlexiblePortals.MOD_ID)
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .then(audit("audit", PortalAudit.Mode.AUDIT))
+                        .then(audit("rebuild", PortalAudit.Mode.REBUILD))
+                        .then(CommandManager.literal("trace")
+                                .then(CommandManager.literal("on").executes(ctx -> trace(ctx.getSource(), true)))
+                                .then(CommandManager.literal("off").executes(ctx -> trace(ctx.getSource(), false))))
+        ));
+        PortalAudit.register();
+    }
+
+    // audit|rebuild <radius|dimension>; radius is tried first so a bare number never parses as a dimension id
+    private static LiteralArgumentBuilder<ServerCommandSource> audit(String name, PortalAudit.Mode mode) {
+        return CommandManager.literal(name)
+                .then(CommandManager.argument("radius", IntegerArgumentType.integer(1, MAX_RADIUS))
+                        .executes(ctx -> PortalAudit.inRadius(ctx.getSource(), IntegerArgumentType.getInteger(ctx, "radius"), mode)))
+                .then(CommandManager.argument("dimension", DimensionArgumentType.dimension())
+                        .executes(ctx -> PortalAudit.inDimension(ctx.getSource(), DimensionArgumentType.getDimensionArgument(ctx, "dimension"), mode)));
+    }
+
+    private static int trace(ServerCommandSource source, boolean on) {
+        DetectionTrace.setEnabled(on);
+        source.sendFeedback(() -> Text.literal(on
+                ? "Recording detection traces to " + DetectionTrace.directory()
+                : "Detection tracing off"), true);
+        return 1;
+    }
+}
@@ -0,0 +1,349 @@
+package com.drtdrc.flexibleportals.command;
+
+import com.drtdrc.flexibleportals.LightBatch;
+import com.drtdrc.flexibleportals.PortalOccupancy;
+import com.drtdrc.flexibleportals.PortalsUtil;
+import com.drtdrc.flexibleportals.mixin.ServerChunkLoadingManagerAccessor;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongPredicate;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.NetherPortalBlock;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.world.ChunkHolder;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds partial and orphaned freeform portals in loaded chunks and optionally completes the partial ones.
+ * <p>
+ * Pipeline: snapshot the loaded sections on the server thread, then group portal blocks into connected
+ * components and run {@link PortalsUtil#findBlocksToFill} for each component in parallel on a private
+ * fork-join pool, then apply fixes back on the server thread a budgeted batch per tick.
+ * <p>
+ * Orphaned portals (no frame found around them, or only one that doesn't enclose the whole portal) are only reported: frameless portals are a supported
+ * feature, so rebuild never removes anything. A portal whose detection reads past the captured chunks (its frame
+ * reaches beyond the snapshot margin or into unloaded chunks) is reported as unknown rather than judged on
+ * cells that only read as air because they weren't captured.
+ */
+public final class PortalAudit {
+
+    private PortalAudit() {}
+
+    public enum Mode { AUDIT, REBUILD }
+
+    private enum Kind { OK, PARTIAL, ORPHANED, UNKNOWN }
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int SNAPSHOT_MARGIN = 2;         // extra chunks captured around a radius so frames at the edge are seen
+    private static final int PLACEMENTS_PER_TICK = 2048;
+    private static final int PROGRESS_INTERVAL = 20;      // ticks between rebuild progress messages
+    private static final int MAX_LISTED = 8;
+
+    private record Component(PortalsUtil.PortalSpec spec, PortalsUtil.Plane plane, BlockPos seed, LongArrayList members) {
+        int cells() { return members.size(); }
+    }
+    private record Finding(Component component, Kind kind, List<BlockPos> missing) {}
+    private record Fix(BlockPos pos, PortalsUtil.PortalSpec spec, BlockState place) {}
+
+    private static final class Rebuild {
+        final ServerCommandSource source;
+        final ServerWorld world;
+        final ArrayDeque<Fix> queue;
+        final int total;
+        final long started = System.nanoTime();
+        int placed;
+        int ticks;
+
+        Rebuild(ServerCommandSource source, ServerWorld world, ArrayDeque<Fix> queue) {
+            this.source = source;
+            this.world = world;
+            this.queue = queue;
+            this.total = queue.size();
+        }
+    }
+
+    private static boolean running;
+    private static Rebuild rebuild;
+
+    static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(PortalAudit::tick);
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            running = false;
+            rebuild = null;
+        });
+    }
+
+    // ----------------------------------------------------
+    // Entry points (server thread)
+    // ----------------------------------------------------
+
+    /** Audit loaded chunks within {@code radius} blocks of the command source. */
+    static int inRadius(ServerCommandSource source, int radius, Mode mode) {
+        ServerWorld world = source.getWorld();
+        ChunkPos center = new ChunkPos(BlockPos.ofFloored(source.getPosition()));
+        int r = (radius + 15) >> 4;
+
+        List<WorldChunk> chunks = new ArrayList<>();
+        for (int dx = -r - SNAPSHOT_MARGIN; dx <= r + SNAPSHOT_MARGIN; dx++) {
+            for (int dz = -r - SNAPSHOT_MARGIN; dz <= r + SNAPSHOT_MARGIN; dz++) {
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(center.x + dx, center.z + dz);
+                if (chunk != null) chunks.add(chunk);
+            }
+        }
+        LongPredicate candidate = chunk -> Math.abs(ChunkPos.getPackedX(chunk) - center.x) <= r
+                && Math.abs(ChunkPos.getPackedZ(chunk) - center.z) <= r;
+        return start(source, world, chunks, candidate, mode);
+    }
+
+    /** Audit every loaded chunk of {@code world}. */
+    static int inDimension(ServerCommandSource source, ServerWorld world, Mode mode) {
+        List<WorldChunk> chunks = new ArrayList<>();
+        var loadingManager = (ServerChunkLoadingManagerAccessor) world.getChunkManager().chunkLoadingManager;
+        for (ChunkHolder holder : loadingManager.flexibleportals$entryIterator()) {
+            WorldChunk chunk = holder.getWorldChunk();
+            if (chunk != null) chunks.add(chunk);
+        }
+        return start(source, world, chunks, chunk -> true, mode);
+    }
+
+    private static int start(ServerCommandSource source, ServerWorld world, List<WorldChunk> chunks, LongPredicate candidate, Mode mode) {
+        if (running) {
+            source.sendError(Text.literal("A portal audit is already running"));
+            return 0;
+        }
+        running = true;
+
+        long t0 = System.nanoTime();
+        SectionSnapshot snapshot = new SectionSnapshot(world.getBottomY(), world.getHeight());
+        LongArrayList portalSections = new LongArrayList();
+        for (WorldChunk chunk : chunks) {
+            ChunkPos cp = chunk.getPos();
+            snapshot.captureChunk(cp);
+            boolean isCandidate = candidate.test(cp.toLong());
+            ChunkSection[] sections = chunk.getSectionArray();
+            for (int i = 0; i < sections.length; i++) {
+                ChunkSection section = sections[i];
+                if (section.isEmpty()) continue;
+                ChunkSectionPos sp = ChunkSectionPos.from(cp, chunk.sectionIndexToCoord(i));
+                snapshot.capture(sp, section);
+                if (isCandidate && PortalOccupancy.of(section).flexibleportals$portalCount() > 0) portalSections.add(sp.asLong());
+            }
+        }
+        long snapshotNanos = System.nanoTime() - t0;
+
+        source.sendFeedback(() -> Text.literal(String.format("Snapshot: %d sections from %d chunks in %.1f ms, %d with portals",
+                snapshot.sectionCount(), chunks.size(), snapshotNanos / 1e6, portalSections.size())), false);
+
+        MinecraftServer server = world.getServer();
+        long t1 = System.nanoTime();
+        CompletableFuture.supplyAsync(() -> analyze(snapshot, portalSections.toLongArray()), POOL)
+                .whenComplete((findings, error) -> server.execute(() -> {
+                    if (error != null) {
+                        running = false;
+                        source.sendError(Text.literal("Portal audit failed: " + error.getMessage()));
+                        return;
+                    }
+                    try {
+                        finish(source, world, findings, System.nanoTime() - t1, mode);
+                    } finally {
+                        // Only a queued rebuild keeps the audit busy
+                        if (rebuild == null) running = false;
+                    }
+                }));
+        return chunks.size();
+    }
+
+    // ----------------------------------------------------
+    // Analysis (fork-join pool, snapshot only)
+    // ----------------------------------------------------
+    private static List<Finding> analyze(SectionSnapshot snapshot, long[] portalSections) {
+        // 1) Enumerate portal cells, one task per section
+        List<LongArrayList> perSection = Arrays.stream(portalSections).parallel()
+                .mapToObj(sp -> scanSection(snapshot, sp))
+                .toList();
+        LongOpenHashSet cells = new LongOpenHashSet();
+        for (LongArrayList l : perSection) cells.addAll(l);
+
+        // 2) Group into 6-connected components of the same portal block
+        List<Component> components = new ArrayList<>();
+        LongArrayFIFOQueue q = new LongArrayFIFOQueue();
+        while (!cells.isEmpty()) {
+            long start = cells.iterator().nextLong();
+            cells.remove(start);
+            BlockState startState = snapshot.getBlockState(BlockPos.fromLong(start));
+            Block block = startState.getBlock();
+            PortalsUtil.Plane plane = planeOf(startState);
+
+            long seed = start;
+            LongArrayList members = new LongArrayList();
+            q.enqueue(start);
+            while (!q.isEmpty()) {
+                long p = q.dequeueLong();
+                members.add(p);
+                if (uOf(p, plane) < uOf(seed, plane)) seed = p;
+                for (Direction d : Direction.values()) {
+                    long n = BlockPos.offset(p, d);
+                    if (cells.contains(n) && snapshot.getBlockState(BlockPos.fromLong(n)).isOf(block)) {
+                        cells.remove(n);
+                        q.enqueue(n);
+                    }
+                }
+            }
+            PortalsUtil.PortalSpec spec = block == Blocks.END_PORTAL ? PortalsUtil.PortalSpec.end() : PortalsUtil.PortalSpec.nether();
+            components.add(new Component(spec, plane, BlockPos.fromLong(seed), members));
+        }
+
+        // 3) Run detection per component in parallel
+        return components.parallelStream().map(c -> inspect(snapshot, c)).toList();
+    }
+
+    private static LongArrayList scanSection(SectionSnapshot snapshot, long sectionPos) {
+        LongArrayList out = new LongArrayList();
+        long[] bits = snapshot.portalBits(sectionPos);
+        if (bits == null) return out;
+        int bx = ChunkSectionPos.unpackX(sectionPos) << 4;
+        int by = ChunkSectionPos.unpackY(sectionPos) << 4;
+        int bz = ChunkSectionPos.unpackZ(sectionPos) << 4;
+        // Set bits are the portal cells, index y << 8 | z << 4 | x
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                out.add(BlockPos.asLong(bx + (i & 15), by + (i >>> 8), bz + ((i >>> 4) & 15)));
+            }
+        }
+        return out;
+    }
+
+    private static PortalsUtil.Plane planeOf(BlockState portal) {
+        if (portal.isOf(Blocks.END_PORTAL)) return PortalsUtil.Plane.HORIZONTAL;
+        return portal.get(NetherPortalBlock.AXIS) == Direction.Axis.X ? PortalsUtil.Plane.VERTICAL_Z : PortalsUtil.Plane.VERTICAL_X;
+    }
+
+    private static int uOf(long pos, PortalsUtil.Plane plane) {
+        return plane == PortalsUtil.Plane.VERTICAL_X ? BlockPos.unpackLongZ(pos) : BlockPos.unpackLongX(pos);
+    }
+
+    private static Finding inspect(SectionSnapshot snapshot, Component c) {
+        // Restrict detection to the component's own plane; the seed is the component's lowest-u portal cell
+        PortalsUtil.PortalSpec spec = c.spec();
+        PortalsUtil.PortalSpec planeSpec = new PortalsUtil.PortalSpec(
+                List.of(c.plane()), spec.frame(), spec.interior(), spec.portalBlock(), spec.orientedStateForPlane());
+
+        SectionSnapshot.Probe view = snapshot.probe();
+        Optional<PortalsUtil.FreeformRegion> region = PortalsUtil.findBlocksToFill(view, c.seed(), planeSpec);
+        if (view.leftSnapshot()) return new Finding(c, Kind.UNKNOWN, List.of());
+        if (region.isEmpty()) return new Finding(c, Kind.ORPHANED, List.of());
+
+        // Detection ring-scans outward from the seed and may lock onto another frame on the same plane (a hub
+        // with a row of portals): the region only counts if it holds every cell of this component
+        List<BlockPos> interior = region.get().interior();
+        LongOpenHashSet inside = new LongOpenHashSet(interior.size());
+        for (BlockPos p : interior) inside.add(p.asLong());
+        for (int i = 0; i < c.members().size(); i++) {
+            if (!inside.contains(c.members().getLong(i))) return new Finding(c, Kind.ORPHANED, List.of());
+        }
+
+        // Open cells are the ones a rebuild would write; frame blocks and correct portal tiles are fine
+        byte[] cells = region.get().cells();
+        List<BlockPos> missing = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == PortalsUtil.CELL_OPEN) missing.add(interior.get(i));
+        }
+        return new Finding(c, missing.isEmpty() ? Kind.OK : Kind.PARTIAL, missing);
+    }
+
+    // ----------------------------------------------------
+    // Reporting and fixes (server thread)
+    // ----------------------------------------------------
+    private static void finish(ServerCommandSource source, ServerWorld world, List<Finding> findings, long nanos, Mode mode) {
+        int ok = 0, partial = 0, orphaned = 0, unknown = 0, cells = 0, missing = 0;
+        for (Finding f : findings) {
+            cells += f.component().cells();
+            missing += f.missing().size();
+            switch (f.kind()) {
+                case OK -> ok++;
+                case PARTIAL -> partial++;
+                case ORPHANED -> orphaned++;
+                case UNKNOWN -> unknown++;
+            }
+        }
+        double ms = nanos / 1e6;
+        double rate = cells / Math.max(nanos / 1e9, 1e-9);
+        String summary = String.format("Audited %d portals (%d cells) in %.1f ms, %.0f cells/s: %d ok, %d partial (%d missing cells), %d orphaned, %d unknown",
+                findings.size(), cells, ms, rate, ok, partial, missing, orphaned, unknown);
+        source.sendFeedback(() -> Text.literal(summary), false);
+
+        int listed = 0;
+        for (Finding f : findings) {
+            if (f.kind() == Kind.OK) continue;
+            if (listed++ == MAX_LISTED) {
+                source.sendFeedback(() -> Text.literal("  ..."), false);
+                break;
+            }
+            BlockPos p = f.component().seed();
+            String line = String.format("  %s %s at %d %d %d (%d cells%s)",
+                    f.kind() == Kind.UNKNOWN ? "unknown (frame leaves snapshot)" : f.kind().name().toLowerCase(), f.component().spec().portalBlock().getName().getString(),
+                    p.getX(), p.getY(), p.getZ(), f.component().cells(),
+                    f.kind() == Kind.PARTIAL ? ", " + f.missing().size() + " missing" : "");
+            source.sendFeedback(() -> Text.literal(line), false);
+        }
+
+        if (mode != Mode.REBUILD || missing == 0) return; // the caller clears 'running' when no rebuild was queued
+
+        ArrayDeque<Fix> queue = new ArrayDeque<>(missing);
+        for (Finding f : findings) {
+            BlockState place = f.component().spec().orientedStateForPlane().apply(f.component().plane());
+            for (BlockPos p : f.missing()) queue.add(new Fix(p, f.component().spec(), place));
+        }
+        rebuild = new Rebuild(source, world, queue);
+    }
+
+    private static void tick(MinecraftServer server) {
+        Rebuild r = rebuild;
+        if (r == null) return;
+
+        try (LightBatch ignored = LightBatch.open(r.world)) {
+            for (int budget = PLACEMENTS_PER_TICK; budget > 0 && !r.queue.isEmpty(); budget--) {
+                Fix f = r.queue.poll();
+                // The world may have changed since the snapshot: only fill cells that are still open
+                BlockState s = r.world.getBlockState(f.pos());
+                if (!s.equals(f.place()) && f.spec().interior().test(s)) {
+                    r.world.setBlockState(f.pos(), f.place(), Block.NOTIFY_LISTENERS | Block.FORCE_STATE);
+                    r.placed++;
+                }
+            }
+        }
+
+        int done = r.total - r.queue.size();
+        if (r.queue.isEmpty()) {
+            double secs = (System.nanoTime() - r.started) / 1e9;
+            r.source.sendFeedback(() -> Text.literal(String.format("Rebuild done: placed %d of %d cells in %.1f s (%.0f cells/s)",
+                    r.placed, r.total, secs, done / Math.max(secs, 1e-9))), true);
+            rebuild = null;
+            running = false;
+        } else if (++r.ticks % PROGRESS_INTERVAL == 0) {
+            r.source.sendFeedback(() -> Text.literal(String.format("Rebuild: %d / %d cells", done, r.total)), false);
+        }
+    }
+}
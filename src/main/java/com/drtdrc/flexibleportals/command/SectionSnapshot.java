@@ -0,0 +1,131 @@
+package com.drtdrc.flexibleportals.command;
+
+import com.drtdrc.flexibleportals.PortalOccupancy;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable copy of a set of chunk sections, readable from any thread.
+ * Cells outside the captured sections read as air; {@link #probe()} tells reads of empty sections inside
+ * captured chunks apart from reads that leave the snapshot.
+ */
+final class SectionSnapshot implements BlockView {
+
+    private final Long2ObjectMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<long[]> portalBits = new Long2ObjectOpenHashMap<>();
+    private final LongOpenHashSet chunks = new LongOpenHashSet();
+    private final int bottomY;
+    private final int height;
+
+    SectionSnapshot(int bottomY, int height) {
+        this.bottomY = bottomY;
+        this.height = height;
+    }
+
+    /** Marks a chunk as captured; its empty sections are skipped by the caller and legitimately read as air. */
+    void captureChunk(ChunkPos pos) {
+        chunks.add(pos.toLong());
+    }
+
+    /** Must be called on the server thread; the container is copied so later world edits don't leak in. */
+    void capture(ChunkSectionPos pos, ChunkSection section) {
+        sections.put(pos.asLong(), section.getBlockStateContainer().copy());
+        long[] bits = PortalOccupancy.of(section).flexibleportals$portalBits();
+        if (bits != null) portalBits.put(pos.asLong(), bits.clone());
+    }
+
+    int sectionCount() {
+        return sections.size();
+    }
+
+    PalettedContainer<BlockState> section(long sectionPos) {
+        return sections.get(sectionPos);
+    }
+
+    /** Portal bits of a captured section (see {@link PortalOccupancy}), or null if it had no portal. */
+    long[] portalBits(long sectionPos) {
+        return portalBits.get(sectionPos);
+    }
+
+    boolean covers(BlockPos pos) {
+        return chunks.contains(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+    }
+
+    /** A per-task view of this snapshot that remembers whether any read left the captured chunks. */
+    Probe probe() {
+        return new Probe();
+    }
+
+    final class Probe implements BlockView {
+        private boolean leftSnapshot;
+
+        boolean leftSnapshot() {
+            return leftSnapshot;
+        }
+
+        @Override
+        public BlockState getBlockState(BlockPos pos) {
+            if (!covers(pos)) leftSnapshot = true;
+            return SectionSnapshot.this.getBlockState(pos);
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos) {
+            return getBlockState(pos).getFluidState();
+        }
+
+        @Override
+        public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+            return null;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getBottomY() {
+            return bottomY;
+        }
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+        PalettedContainer<BlockState> c = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        return c == null ? Blocks.AIR.getDefaultState() : c.get(x & 15, y & 15, z & 15);
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Override
+    public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getBottomY() {
+        return bottomY;
+    }
+}
@@ -0,0 +1,28 @@
+package com.drtdrc.flexibleportals.mixin;
+
+import com.drtdrc.flexibleportals.StateTable;
+import net.minecraft.block.AbstractBlock;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+// Caches the raw state ID on the state itself so StateTable lookups skip the IdList hash probe
+@Mixin(AbstractBlock.AbstractBlockState.class)
+public abstract class AbstractBlockStateMixin implements StateTable.Indexed {
+
+    @Unique private int flexibleportals$rawId = -1;
+
+    @Override
+    public int flexibleportals$rawId() {
+        int id = flexibleportals$rawId;
+        // Filled by StateTable.compile once the registries are frozen; the lazy path only covers late callers
+        if (id < 0) flexibleportals$rawId = id = Block.getRawIdFromState((BlockState) (Object) this);
+        return id;
+    }
+
+    @Override
+    public void flexibleportals$setRawId(int id) {
+        flexibleportals$rawId = id;
+    }
+}
@@ -0,0 +1,70 @@
+package com.drtdrc.flexibleportals.mixin;
+
+import com.drtdrc.flexibleportals.PortalOccupancy;
+import net.minecraft.block.BlockState;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(ChunkSection.class)
+public abstract class ChunkSectionMixin implements PortalOccupancy {
+
+    @Unique private int flexibleportals$portalCount;
+    @Unique private long[] flexibleportals$portalBits; // allocated with the first portal, dropped on recount
+
+    @Override
+    public int flexibleportals$portalCount() {
+        return flexibleportals$portalCount;
+    }
+
+    @Override
+    public long[] flexibleportals$portalBits() {
+        return flexibleportals$portalBits;
+    }
+
+    // Every single-block write ends here; the return value is the previous state
+    @Inject(
+            method = "setBlockState(IIILnet/minecraft/block/BlockState;Z)Lnet/minecraft/block/BlockState;",
+            at = @At("RETURN")
+    )
+    private void trackPortal(int x, int y, int z, BlockState state, boolean lock, CallbackInfoReturnable<BlockState> cir) {
+        boolean was = PortalOccupancy.isPortal(cir.getReturnValue()), is = PortalOccupancy.isPortal(state);
+        if (was == is) return;
+
+        int i = PortalOccupancy.index(x, y, z);
+        if (is) {
+            if (flexibleportals$portalBits == null) flexibleportals$portalBits = new long[64];
+            flexibleportals$portalBits[i >>> 6] |= 1L << i;
+            flexibleportals$portalCount++;
+        } else if (flexibleportals$portalBits != null) {
+            flexibleportals$portalBits[i >>> 6] &= ~(1L << i);
+            if (--flexibleportals$portalCount == 0) flexibleportals$portalBits = null;
+        }
+    }
+
+    // Full recount whenever vanilla recounts (section load, client data packets)
+    @Inject(method = "calculateCounts", at = @At("TAIL"))
+    private void countPortals(CallbackInfo ci) {
+        flexibleportals$portalCount = 0;
+        flexibleportals$portalBits = null;
+
+        PalettedContainer<BlockState> container = ((ChunkSection) (Object) this).getBlockStateContainer();
+        if (!container.hasAny(PortalOccupancy::isPortal)) return;
+
+        long[] bits = new long[64];
+        int count = 0;
+        for (int i = 0; i < 4096; i++) {
+            if (PortalOccupancy.isPortal(container.get(i & 15, i >>> 8, (i >>> 4) & 15))) {
+                bits[i >>> 6] |= 1L << i;
+                count++;
+            }
+        }
+        flexibleportals$portalBits = bits;
+        flexibleportals$portalCount = count;
+    }
+}
@@ -1,5 +1,6 @@
 package com.drtdrc.flexibleportals.mixin;
 
+import com.drtdrc.flexibleportals.EndFrameTracker;
 import com.drtdrc.flexibleportals.PortalsUtil;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -45,7 +46,12 @@ public class EnderEyeItemMixin {
         context.getStack().decrement(1);
         world.syncWorldEvent(WorldEvents.END_PORTAL_FRAME_FILLED, blockPos, 0);
 
-        PortalsUtil.findAndCreate((ServerWorld) world, blockPos, PortalsUtil.PortalSpec.end(), SoundEvents.BLOCK_END_PORTAL_SPAWN);
+        // Only worth a full detection pass once this eye closes a frame loop
+        ServerWorld serverWorld = (ServerWorld) world;
+        if (EndFrameTracker.shouldDetect(serverWorld, blockPos)
+                && !PortalsUtil.findAndCreate(serverWorld, blockPos, PortalsUtil.PortalSpec.end(), SoundEvents.BLOCK_END_PORTAL_SPAWN)) {
+            EndFrameTracker.detectFailed(serverWorld, blockPos);
+        }
 
         cir.setReturnValue(ActionResult.SUCCESS);
     }
@@ -2,7 +2,6 @@ package com.drtdrc.flexibleportals.mixin;
 
 import com.drtdrc.flexibleportals.PortalsUtil;
 import net.minecraft.block.AbstractBlock;
-import net.minecraft.block.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.WorldAccess;
@@ -22,14 +21,14 @@ import java.util.Optional;
 @Mixin(NetherPortal.class)
 public abstract class NetherPortalMixin {
 
-    // 1) Allow crying obsidian as a valid frame block (matches your PortalsUtil spec)
+    // 1) Use the loaded nether spec's frame table (obsidian + crying obsidian by default) for vanilla rectangles too
     @Shadow @Final @Mutable
     private static AbstractBlock.ContextPredicate IS_VALID_FRAME_BLOCK;
 
     @Inject(method = "<clinit>", at = @At("TAIL"))
     private static void expandValidFrame(CallbackInfo ci) {
         IS_VALID_FRAME_BLOCK = (state, world, pos) ->
-                state.isOf(Blocks.OBSIDIAN) || state.isOf(Blocks.CRYING_OBSIDIAN);
+                PortalsUtil.PortalSpec.nether().frame().test(state);
     }
 
     // 2) Try free-form creation first; if we succeed, short-circuit vanilla rectangle creation
@@ -0,0 +1,13 @@
+package com.drtdrc.flexibleportals.mixin;
+
+import net.minecraft.server.world.ChunkHolder;
+import net.minecraft.server.world.ServerChunkLoadingManager;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+// Lets the portal audit walk every loaded chunk of a dimension
+@Mixin(ServerChunkLoadingManager.class)
+public interface ServerChunkLoadingManagerAccessor {
+    @Invoker("entryIterator")
+    Iterable<ChunkHolder> flexibleportals$entryIterator();
+}
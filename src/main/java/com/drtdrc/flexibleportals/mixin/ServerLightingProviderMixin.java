@@ -0,0 +1,40 @@
+package com.drtdrc.flexibleportals.mixin;
+
+import com.drtdrc.flexibleportals.LightBatch;
+import net.minecraft.server.world.ServerLightingProvider;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkProvider;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+
+// One queued light task for a whole LightBatch, instead of vanilla's one task per block
+@Mixin(ServerLightingProvider.class)
+public abstract class ServerLightingProviderMixin extends LightingProvider implements LightBatch.Target {
+
+    private ServerLightingProviderMixin(ChunkProvider chunkProvider, boolean hasBlockLight, boolean hasSkyLight) {
+        super(chunkProvider, hasBlockLight, hasSkyLight);
+    }
+
+    // Stage is made accessible by flexibleportals.accesswidener
+    @Shadow
+    protected abstract void enqueue(int x, int z, ServerLightingProvider.Stage stage, Runnable task);
+
+    @Override
+    public void flexibleportals$checkBlocks(long[] positions) {
+        // PRE_UPDATE like vanilla's checkBlock: every position is queued before the provider's next
+        // doLightUpdates, which then propagates the whole batch together. The written chunks are all loaded,
+        // so ordering the task behind the first one's status is enough.
+        long first = positions[0];
+        this.enqueue(ChunkSectionPos.getSectionCoord(BlockPos.unpackLongX(first)), ChunkSectionPos.getSectionCoord(BlockPos.unpackLongZ(first)),
+                ServerLightingProvider.Stage.PRE_UPDATE, () -> this.flexibleportals$runChecks(positions));
+    }
+
+    @Unique
+    private void flexibleportals$runChecks(long[] positions) {
+        BlockPos.Mutable m = new BlockPos.Mutable();
+        for (long p : positions) super.checkBlock(m.set(p));
+    }
+}
@@ -1,5 +1,7 @@
 package com.drtdrc.flexibleportals.mixin;
 
+import com.drtdrc.flexibleportals.EndFrameTracker;
+import net.minecraft.block.BlockState;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvents;
@@ -29,4 +31,13 @@ public class ServerWorldMixin {
             ci.cancel();
         }
     }
+
+    // Every block change passes here after the chunk was updated; keeps end-frame components current
+    @Inject(
+            method = "onBlockStateChanged",
+            at = @At("TAIL")
+    )
+    private void trackEndFrames(BlockPos pos, BlockState oldState, BlockState newState, CallbackInfo ci) {
+        EndFrameTracker.onStateChanged((ServerWorld) (Object) this, pos, oldState, newState);
+    }
 }
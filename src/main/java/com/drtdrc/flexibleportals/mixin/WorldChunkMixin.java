@@ -0,0 +1,29 @@
+package com.drtdrc.flexibleportals.mixin;
+
+import com.drtdrc.flexibleportals.LightBatch;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+@Mixin(WorldChunk.class)
+public abstract class WorldChunkMixin {
+
+    /**
+     * The per-block light check vanilla queues after a light-relevant change. While a {@link LightBatch}
+     * is open for this world the check is collected and queued with the rest of the batch when it closes.
+     */
+    @Redirect(
+            method = "setBlockState",
+            at = @At(
+                    value = "INVOKE",
+                    target = "Lnet/minecraft/world/chunk/light/LightingProvider;checkBlock(Lnet/minecraft/util/math/BlockPos;)V"
+            )
+    )
+    private void deferLightCheck(LightingProvider light, BlockPos pos) {
+        WorldChunk self = (WorldChunk) (Object) this;
+        if (!LightBatch.capture(self.getWorld(), pos)) light.checkBlock(pos);
+    }
+}
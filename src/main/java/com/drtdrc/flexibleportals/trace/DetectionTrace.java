@@ -0,0 +1,166 @@
+package com.drtdrc.flexibleportals.trace;
+
+import com.drtdrc.flexibleportals.FlexiblePortals;
+import com.drtdrc.flexibleportals.FlexiblePortalsConfig;
+import com.drtdrc.flexibleportals.PortalsUtil;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opt-in recorder for {@link PortalsUtil#findBlocksToFill}. Every cell class the detection core reads is captured
+ * per plane and written, gzipped, to {@code flexibleportals/traces/*.fpt} in the game directory so
+ * {@link TraceReplay} can re-run the exact same detection offline.
+ * <p>
+ * File layout (big-endian, inside gzip): magic, version, wall clock millis, origin xyz, spec id, maxComponent,
+ * maxArea, live nanos, plane count; then per plane: plane ordinal, const coordinate, origin uv, result
+ * (interior cells or -1), cell count and the cells sorted by packed uv as (zigzag varint delta, class byte).
+ */
+public final class DetectionTrace {
+
+    private DetectionTrace() {}
+
+    static final int MAGIC = 0x46505452; // "FPTR"
+    static final int VERSION = 1;
+    static final String EXTENSION = ".fpt";
+
+    private static volatile boolean enabled;
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "FlexiblePortals trace writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static Path directory() {
+        return FabricLoader.getInstance().getGameDir().resolve(FlexiblePortals.MOD_ID).resolve("traces");
+    }
+
+    /** Start recording one findBlocksToFill call, or null when tracing is off. */
+    public static Recorder begin(BlockPos origin, PortalsUtil.PortalSpec spec) {
+        if (!enabled) return null;
+        return new Recorder(origin, Registries.BLOCK.getId(spec.portalBlock()).toString());
+    }
+
+    private static final class PlaneTrace {
+        final PortalsUtil.Plane plane;
+        final int c, u0, v0;
+        final Long2ByteOpenHashMap cells = new Long2ByteOpenHashMap();
+        int result = -1;
+
+        PlaneTrace(PortalsUtil.Plane plane, int c, int u0, int v0) {
+            this.plane = plane;
+            this.c = c;
+            this.u0 = u0;
+            this.v0 = v0;
+        }
+    }
+
+    public static final class Recorder {
+        private final BlockPos origin;
+        private final String spec;
+        private final int maxComponent = FlexiblePortalsConfig.maxComponent();
+        private final int maxArea = FlexiblePortalsConfig.maxArea();
+        private final long started = System.nanoTime();
+        private final List<PlaneTrace> planes = new ArrayList<>();
+
+        private Recorder(BlockPos origin, String spec) {
+            this.origin = origin;
+            this.spec = spec;
+        }
+
+        /** Wrap the reader for one plane so every first read of a cell is captured. */
+        public PortalsUtil.CellReader plane(PortalsUtil.Plane plane, int c, int u0, int v0, PortalsUtil.CellReader cells) {
+            PlaneTrace trace = new PlaneTrace(plane, c, u0, v0);
+            planes.add(trace);
+            return (u, v) -> {
+                long k = ((long) u << 32) ^ (v & 0xFFFFFFFFL);
+                if (trace.cells.containsKey(k)) return trace.cells.get(k);
+                byte cls = cells.read(u, v);
+                trace.cells.put(k, cls);
+                return cls;
+            };
+        }
+
+        public void result(int interiorCells) {
+            planes.getLast().result = interiorCells;
+        }
+
+        public void finish() {
+            long nanos = System.nanoTime() - started;
+            long wall = System.currentTimeMillis();
+            Path file = directory().resolve("trace-" + wall + "-" + COUNTER.incrementAndGet() + EXTENSION);
+            WRITER.execute(() -> {
+                try {
+                    write(file, wall, nanos);
+                } catch (IOException e) {
+                    FlexiblePortals.LOGGER.warn("Could not write detection trace {}: {}", file, e.getMessage());
+                }
+            });
+        }
+
+        private void write(Path file, long wall, long nanos) throws IOException {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(wall);
+                out.writeInt(origin.getX());
+                out.writeInt(origin.getY());
+                out.writeInt(origin.getZ());
+                out.writeUTF(spec);
+                out.writeInt(maxComponent);
+                out.writeInt(maxArea);
+                out.writeLong(nanos);
+                out.writeByte(planes.size());
+                for (PlaneTrace p : planes) {
+                    out.writeByte(p.plane.ordinal());
+                    out.writeInt(p.c);
+                    out.writeInt(p.u0);
+                    out.writeInt(p.v0);
+                    out.writeInt(p.result);
+
+                    long[] keys = p.cells.keySet().toLongArray();
+                    Arrays.sort(keys);
+                    out.writeInt(keys.length);
+                    long prev = 0;
+                    for (long k : keys) {
+                        writeVarLong(out, (k - prev) << 1 ^ (k - prev) >> 63);
+                        out.writeByte(p.cells.get(k));
+                        prev = k;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
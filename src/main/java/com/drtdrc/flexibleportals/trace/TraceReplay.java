@@ -0,0 +1,133 @@
+package com.drtdrc.flexibleportals.trace;
+
+import com.drtdrc.flexibleportals.PortalsUtil;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Standalone replay of {@link DetectionTrace} files: re-runs {@link PortalsUtil#detectPlane} over the recorded
+ * cell classes and prints time and allocation per trace. Needs no running game, only the mod's classpath:
+ * <pre>./gradlew replayTraces -Ptraces=run/flexibleportals/traces</pre>
+ * Arguments are trace files or directories containing them.
+ */
+public final class TraceReplay {
+
+    private TraceReplay() {}
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    private record PlaneTrace(PortalsUtil.Plane plane, int u0, int v0, int result, Long2ByteOpenHashMap cells) {}
+    private record Trace(String spec, int x, int y, int z, int maxComponent, int maxArea, long liveNanos, List<PlaneTrace> planes) {}
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path p = Path.of(arg);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> s = Files.list(p)) {
+                    s.filter(f -> f.toString().endsWith(DetectionTrace.EXTENSION)).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(p);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: TraceReplay <trace.fpt|dir>...");
+            System.exit(2);
+        }
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.printf("%-36s %-24s %8s %9s %10s %12s %12s%n", "trace", "spec @ origin", "cells", "interior", "live µs", "replay µs", "bytes/op");
+
+        int mismatches = 0;
+        for (Path file : files) {
+            Trace t = read(file);
+            int cells = t.planes().stream().mapToInt(p -> p.cells().size()).sum();
+
+            int result = -1;
+            for (int i = 0; i < WARMUP; i++) result = replay(t);
+
+            long bytes0 = threads.getCurrentThreadAllocatedBytes();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) replay(t);
+            long nanos = (System.nanoTime() - t0) / ITERATIONS;
+            long bytes = (threads.getCurrentThreadAllocatedBytes() - bytes0) / ITERATIONS;
+
+            int expected = t.planes().stream().mapToInt(PlaneTrace::result).filter(r -> r >= 0).findFirst().orElse(-1);
+            boolean ok = result == expected;
+            if (!ok) mismatches++;
+
+            System.out.printf("%-36s %-24s %8d %9s %10.1f %12.1f %12d%s%n",
+                    file.getFileName(), t.spec() + " @ " + t.x() + "," + t.y() + "," + t.z(), cells,
+                    result < 0 ? "-" : Integer.toString(result), t.liveNanos() / 1e3, nanos / 1e3, bytes,
+                    ok ? "" : "  MISMATCH (recorded " + expected + ")");
+        }
+        if (mismatches > 0) {
+            System.err.println(mismatches + " trace(s) replayed to a different result");
+            System.exit(1);
+        }
+    }
+
+    /** Mirrors findBlocksToFill: first plane with a portal wins. Returns interior cells or -1. */
+    private static int replay(Trace t) {
+        for (PlaneTrace p : t.planes()) {
+            // Cells that were never read live are never read here either; default to blocker just in case
+            PortalsUtil.InteriorCells interior = PortalsUtil.detectPlane(
+                    (u, v) -> p.cells().getOrDefault(((long) u << 32) ^ (v & 0xFFFFFFFFL), PortalsUtil.CELL_BLOCKER),
+                    p.u0(), p.v0(), p.plane() == PortalsUtil.Plane.HORIZONTAL, t.maxComponent(), t.maxArea());
+            if (interior != null) return interior.uv().length;
+        }
+        return -1;
+    }
+
+    private static Trace read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != DetectionTrace.MAGIC) throw new IOException(file + " is not a detection trace");
+            int version = in.readUnsignedByte();
+            if (version != DetectionTrace.VERSION) throw new IOException(file + " has unsupported version " + version);
+            in.readLong(); // wall clock
+            int x = in.readInt(), y = in.readInt(), z = in.readInt();
+            String spec = in.readUTF();
+            int maxComponent = in.readInt(), maxArea = in.readInt();
+            long liveNanos = in.readLong();
+
+            int planeCount = in.readUnsignedByte();
+            List<PlaneTrace> planes = new ArrayList<>(planeCount);
+            for (int i = 0; i < planeCount; i++) {
+                PortalsUtil.Plane plane = PortalsUtil.Plane.values()[in.readUnsignedByte()];
+                in.readInt(); // const coordinate, only needed to map back to world positions
+                int u0 = in.readInt(), v0 = in.readInt(), result = in.readInt();
+                int count = in.readInt();
+                Long2ByteOpenHashMap cells = new Long2ByteOpenHashMap(count);
+                long prev = 0;
+                for (int j = 0; j < count; j++) {
+                    long zz = readVarLong(in);
+                    prev += (zz >>> 1) ^ -(zz & 1);
+                    cells.put(prev, in.readByte());
+                }
+                planes.add(new PlaneTrace(plane, u0, v0, result, cells));
+            }
+            return new Trace(spec, x, y, z, maxComponent, maxArea, liveNanos, planes);
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
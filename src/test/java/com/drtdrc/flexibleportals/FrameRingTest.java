@@ -0,0 +1,126 @@
+package com.drtdrc.flexibleportals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link FrameRing#closesLoop} against brute force: a new frame cell closes a loop exactly when the number
+ * of enclosed holes (4-connected empty regions off the border, i.e. what an 8-connected frame can enclose) grows.
+ */
+class FrameRingTest {
+
+    private static final int N = 12;
+    private static final long NONE = FrameRing.NONE;
+
+    @Test
+    void singleGroupNeverCloses() {
+        long[] roots = ring(NONE, NONE, 1, 1, 1, NONE, NONE, NONE);
+        assertFalse(FrameRing.closesLoop(roots));
+    }
+
+    @Test
+    void orthogonalNeighboursAroundEmptyCornerTouch() {
+        // North and east are 8-connected through the corner even with north-east empty
+        assertFalse(FrameRing.closesLoop(ring(1, NONE, 1, NONE, NONE, NONE, NONE, NONE)));
+    }
+
+    @Test
+    void oppositeGroupsOfOneComponentClose() {
+        assertTrue(FrameRing.closesLoop(ring(1, NONE, NONE, NONE, 1, NONE, NONE, NONE)));
+    }
+
+    @Test
+    void oppositeGroupsOfTwoComponentsDoNotClose() {
+        assertFalse(FrameRing.closesLoop(ring(1, NONE, NONE, NONE, 2, NONE, NONE, NONE)));
+    }
+
+    @Test
+    void matchesHoleCountOnRandomGrids() {
+        Random random = new Random(1);
+        for (int run = 0; run < 3000; run++) {
+            boolean[][] grid = new boolean[N][N];
+            for (int step = 0; step < 200; step++) {
+                // Stay off the border so the outside is always connected
+                int x = 1 + random.nextInt(N - 2), z = 1 + random.nextInt(N - 2);
+                if (grid[x][z]) {
+                    if (random.nextInt(4) == 0) grid[x][z] = false;
+                    continue;
+                }
+
+                int[][] label = components(grid);
+                long[] roots = new long[8];
+                for (int i = 0; i < 8; i++) {
+                    int lx = x + FrameRing.DX[i], lz = z + FrameRing.DZ[i];
+                    roots[i] = grid[lx][lz] ? label[lx][lz] : NONE;
+                }
+
+                int before = holes(grid);
+                grid[x][z] = true;
+                int after = holes(grid);
+                assertEquals(after > before, FrameRing.closesLoop(roots), "run " + run + ", step " + step + " at " + x + "," + z);
+            }
+        }
+    }
+
+    private static long[] ring(long... roots) {
+        return roots;
+    }
+
+    /** 8-connected labels of the frame cells. */
+    private static int[][] components(boolean[][] grid) {
+        int[][] label = new int[N][N];
+        int next = 0;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        for (int x = 0; x < N; x++) {
+            for (int z = 0; z < N; z++) {
+                if (!grid[x][z] || label[x][z] != 0) continue;
+                label[x][z] = ++next;
+                queue.add(new int[] { x, z });
+                while (!queue.isEmpty()) {
+                    int[] c = queue.poll();
+                    for (int i = 0; i < 8; i++) {
+                        int a = c[0] + FrameRing.DX[i], b = c[1] + FrameRing.DZ[i];
+                        if (a < 0 || b < 0 || a >= N || b >= N || !grid[a][b] || label[a][b] != 0) continue;
+                        label[a][b] = next;
+                        queue.add(new int[] { a, b });
+                    }
+                }
+            }
+        }
+        return label;
+    }
+
+    /** 4-connected empty regions that don't reach the border. */
+    private static int holes(boolean[][] grid) {
+        boolean[][] seen = new boolean[N][N];
+        int holes = 0;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        int[][] steps = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+        for (int x = 0; x < N; x++) {
+            for (int z = 0; z < N; z++) {
+                if (grid[x][z] || seen[x][z]) continue;
+                boolean border = false;
+                seen[x][z] = true;
+                queue.add(new int[] { x, z });
+                while (!queue.isEmpty()) {
+                    int[] c = queue.poll();
+                    if (c[0] == 0 || c[1] == 0 || c[0] == N - 1 || c[1] == N - 1) border = true;
+                    for (int[] s : steps) {
+                        int a = c[0] + s[0], b = c[1] + s[1];
+                        if (a < 0 || b < 0 || a >= N || b >= N || grid[a][b] || seen[a][b]) continue;
+                        seen[a][b] = true;
+                        queue.add(new int[] { a, b });
+                    }
+                }
+                if (!border) holes++;
+            }
+        }
+        return holes;
+    }
+}
@@ -0,0 +1,124 @@
+package com.drtdrc.flexibleportals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link SpanFill#interior} against brute force: interior is every free cell a 4-connected flood from the
+ * moat doesn't reach.
+ */
+class SpanFillTest {
+
+    @Test
+    void diagonalPinholeStaysSealed() {
+        // Diamond ring: neighbouring frame cells only touch at corners, the centre is still enclosed
+        boolean[][] grid = new boolean[7][7];
+        grid[1][3] = grid[2][2] = grid[2][4] = grid[3][1] = grid[3][5] = grid[4][2] = grid[4][4] = grid[5][3] = true;
+        long[][] inside = SpanFill.interior(bits(grid), 7, Integer.MAX_VALUE);
+        assertNotNull(inside);
+        assertTrue(get(inside, 3, 3));
+        assertTrue(get(inside, 2, 3));
+        assertFalse(get(inside, 1, 1));
+    }
+
+    @Test
+    void rejectsInteriorOverLimit() {
+        boolean[][] grid = ring(12, 12);
+        // 8 x 8 interior
+        assertNotNull(SpanFill.interior(bits(grid), 12, 64));
+        assertNull(SpanFill.interior(bits(grid), 12, 63));
+    }
+
+    @Test
+    void matchesFloodOnSmallGrids() {
+        Random random = new Random(1);
+        for (int run = 0; run < 2000; run++) {
+            int w = 3 + random.nextInt(40), h = 3 + random.nextInt(40);
+            check(randomGrid(random, w, h), w, "run " + run);
+        }
+    }
+
+    @Test
+    void matchesFloodOnBandedGrids() {
+        // At least 1 << 16 cells, so rows are split into parallel bands and joined at the seams
+        Random random = new Random(2);
+        for (int run = 0; run < 20; run++) {
+            int w = 200 + random.nextInt(200), h = 330 + random.nextInt(200);
+            boolean[][] grid = randomGrid(random, w, h);
+            // A ring spanning every band seam, so one interior region must be stitched across bands
+            boolean[][] big = ring(w, h);
+            for (int y = 0; y < h; y++) for (int x = 0; x < w; x++) grid[y][x] |= big[y][x];
+            check(grid, w, "run " + run);
+        }
+    }
+
+    private static void check(boolean[][] grid, int w, String what) {
+        long[][] expected = bits(flood(grid, w));
+        long[][] actual = SpanFill.interior(bits(grid), w, Integer.MAX_VALUE);
+        assertNotNull(actual, what);
+        for (int y = 0; y < grid.length; y++) assertArrayEquals(expected[y], actual[y], what + ", row " + y);
+    }
+
+    /** Random frame cells with a free moat; density varies per grid so both open and cluttered grids show up. */
+    private static boolean[][] randomGrid(Random random, int w, int h) {
+        double density = 0.2 + random.nextDouble() * 0.5;
+        boolean[][] grid = new boolean[h][w];
+        for (int y = 1; y < h - 1; y++) {
+            for (int x = 1; x < w - 1; x++) grid[y][x] = random.nextDouble() < density;
+        }
+        return grid;
+    }
+
+    /** Frame ring one cell inside the moat. */
+    private static boolean[][] ring(int w, int h) {
+        boolean[][] grid = new boolean[h][w];
+        for (int x = 1; x < w - 1; x++) grid[1][x] = grid[h - 2][x] = true;
+        for (int y = 1; y < h - 1; y++) grid[y][1] = grid[y][w - 2] = true;
+        return grid;
+    }
+
+    /** Free cells not 4-connected to the moat. */
+    private static boolean[][] flood(boolean[][] grid, int w) {
+        int h = grid.length;
+        boolean[][] outside = new boolean[h][w];
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        outside[0][0] = true;
+        queue.add(new int[] { 0, 0 });
+        int[][] steps = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+        while (!queue.isEmpty()) {
+            int[] c = queue.poll();
+            for (int[] s : steps) {
+                int x = c[0] + s[0], y = c[1] + s[1];
+                if (x < 0 || y < 0 || x >= w || y >= h || grid[y][x] || outside[y][x]) continue;
+                outside[y][x] = true;
+                queue.add(new int[] { x, y });
+            }
+        }
+        boolean[][] inside = new boolean[h][w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) inside[y][x] = !grid[y][x] && !outside[y][x];
+        }
+        return inside;
+    }
+
+    private static long[][] bits(boolean[][] grid) {
+        int w = grid[0].length;
+        long[][] out = new long[grid.length][(w + 63) >>> 6];
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x < w; x++) if (grid[y][x]) out[y][x >>> 6] |= 1L << x;
+        }
+        return out;
+    }
+
+    private static boolean get(long[][] bits, int x, int y) {
+        return (bits[y][x >>> 6] & (1L << x)) != 0;
+    }
+}